@@ -0,0 +1,198 @@
+package study.querydsl.projection.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @GeneratedProjection 이 붙은 생성자마다 FactoryExpressionBase 를 상속한 &lt;Dto&gt;Projection 을 만든다.
+ * newInstance 는 인자 배열을 index 로 꺼내서 생성자를 직접 호출한다. 리플렉션, alias 조회가 없다.
+ */
+@SupportedAnnotationTypes(ProjectionProcessor.ANNOTATION)
+public class ProjectionProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "study.querydsl.projection.GeneratedProjection";
+    static final String SUFFIX = "Projection";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                ExecutableElement constructor = (ExecutableElement) element; // @Target(CONSTRUCTOR)
+                TypeElement type = (TypeElement) constructor.getEnclosingElement();
+                if (!valid(type, constructor)) {
+                    continue;
+                }
+                try {
+                    write(type, constructor);
+                } catch (IOException e) {
+                    error(constructor, "cannot write projection for " + type + ": " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean valid(TypeElement type, ExecutableElement constructor) {
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL) {
+            error(constructor, "@GeneratedProjection is supported on top-level classes only");
+            return false;
+        }
+        if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+            error(constructor, "@GeneratedProjection constructor must not be private");
+            return false;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error(constructor, "@GeneratedProjection is not supported on generic classes");
+            return false;
+        }
+        return true;
+    }
+
+    private void write(TypeElement type, ExecutableElement constructor) throws IOException {
+        String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+        String dto = type.getSimpleName().toString();
+        String name = dto + SUFFIX;
+        List<? extends VariableElement> parameters = constructor.getParameters();
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("import com.querydsl.core.types.Expression;\n")
+                .append("import com.querydsl.core.types.FactoryExpressionBase;\n")
+                .append("import com.querydsl.core.types.Visitor;\n\n")
+                .append("import javax.annotation.processing.Generated;\n")
+                .append("import java.util.Arrays;\n")
+                .append("import java.util.Collections;\n")
+                .append("import java.util.List;\n\n");
+
+        src.append("/** ").append(dto).append(" 의 @GeneratedProjection 생성자를 직접 호출하는 projection */\n")
+                .append("@Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(name).append(" extends FactoryExpressionBase<").append(dto).append("> {\n\n")
+                .append("    private static final long serialVersionUID = 1L;\n\n")
+                .append("    private final List<Expression<?>> args;\n\n");
+
+        // 생성자: 파라미터 순서대로 select 할 Expression
+        src.append("    public ").append(name).append('(');
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            src.append(i == 0 ? "" : ", ").append(expressionType(parameter.asType())).append(' ').append(parameter.getSimpleName());
+        }
+        src.append(") {\n")
+                .append("        super(").append(dto).append(".class);\n")
+                .append("        this.args = Collections.unmodifiableList(Arrays.<Expression<?>>asList(");
+        for (int i = 0; i < parameters.size(); i++) {
+            src.append(i == 0 ? "" : ", ").append(parameters.get(i).getSimpleName());
+        }
+        src.append("));\n    }\n\n");
+
+        src.append("    @Override\n")
+                .append("    public List<Expression<?>> getArgs() {\n")
+                .append("        return args;\n")
+                .append("    }\n\n");
+
+        src.append("    @Override\n")
+                .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public ").append(dto).append(" newInstance(Object... a) {\n")
+                .append("        return new ").append(dto).append('(');
+        for (int i = 0; i < parameters.size(); i++) {
+            src.append(i == 0 ? "\n                " : ",\n                ").append(convert(parameters.get(i).asType(), "a[" + i + "]"));
+        }
+        src.append(");\n    }\n\n");
+
+        src.append("    @Override\n")
+                .append("    public <R, C> R accept(Visitor<R, C> v, C context) {\n")
+                .append("        return v.visit(this, context);\n")
+                .append("    }\n")
+                .append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? name : packageName + '.' + name;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    private String expressionType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return "Expression<" + boxed(type.getKind()) + ">";
+        }
+        return "Expression<? extends " + type + ">";
+    }
+
+    /** JPA 가 돌려준 값을 파라미터 타입으로. 숫자는 select 한 타입(Long, Integer ...)과 달라도 받는다. */
+    private String convert(TypeMirror type, String value) {
+        TypeKind kind = type.getKind();
+        switch (kind) {
+            case BOOLEAN:
+                return value + " != null && (Boolean) " + value;
+            case CHAR:
+                return value + " != null ? (Character) " + value + " : '\\0'";
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return value + " != null ? ((Number) " + value + ")." + kind.name().toLowerCase() + "Value() : 0";
+            default:
+                String boxedNumber = boxedNumber(type.toString());
+                if (boxedNumber != null) {
+                    return "(" + value + " == null || " + value + " instanceof " + type + ") ? (" + type + ") " + value
+                            + " : " + type + ".valueOf(((Number) " + value + ")." + boxedNumber + "Value())";
+                }
+                return "(" + type + ") " + value;
+        }
+    }
+
+    private static String boxed(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN: return "Boolean";
+            case CHAR: return "Character";
+            case BYTE: return "Byte";
+            case SHORT: return "Short";
+            case INT: return "Integer";
+            case LONG: return "Long";
+            case FLOAT: return "Float";
+            default: return "Double";
+        }
+    }
+
+    private static String boxedNumber(String type) {
+        switch (type) {
+            case "java.lang.Byte": return "byte";
+            case "java.lang.Short": return "short";
+            case "java.lang.Integer": return "int";
+            case "java.lang.Long": return "long";
+            case "java.lang.Float": return "float";
+            case "java.lang.Double": return "double";
+            default: return null;
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberDtoProjection;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.dto.UserDto;
+import study.querydsl.dto.UserDtoProjection;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 결과 행을 DTO 로 바꾸는 비용만 비교한다. (DB 시간은 빼고)
+ * querydsl 은 JPA 가 돌려준 행(Object[])마다 projection.newInstance(row) 를 부르므로, 같은 방식으로 rows 개를 변환한다.
+ *
+ * ./gradlew jmh -Pjmh.includes=ProjectionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    Object[][] data;
+
+    FactoryExpression<UserDto> bean;
+    FactoryExpression<UserDto> fields;
+    FactoryExpression<UserDto> constructor;
+    FactoryExpression<MemberDto> queryProjection;
+    FactoryExpression<UserDto> generated;
+    FactoryExpression<MemberDto> generatedMember;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{"member" + i, random.nextInt(100)}; // username, age (Integer)
+        }
+        bean = Projections.bean(UserDto.class, member.username.as("name"), member.age);
+        fields = Projections.fields(UserDto.class, member.username.as("name"), member.age);
+        constructor = Projections.constructor(UserDto.class, member.username, member.age);
+        queryProjection = new QMemberDto(member.username, member.age);
+        generated = new UserDtoProjection(member.username, member.age);
+        generatedMember = new MemberDtoProjection(member.username, member.age);
+    }
+
+    @Benchmark
+    public void bean(Blackhole blackhole) {
+        map(bean, blackhole);
+    }
+
+    @Benchmark
+    public void fields(Blackhole blackhole) {
+        map(fields, blackhole);
+    }
+
+    @Benchmark
+    public void constructor(Blackhole blackhole) {
+        map(constructor, blackhole);
+    }
+
+    @Benchmark
+    public void queryProjection(Blackhole blackhole) {
+        map(queryProjection, blackhole);
+    }
+
+    @Benchmark
+    public void generated(Blackhole blackhole) {
+        map(generated, blackhole);
+    }
+
+    @Benchmark
+    public void generatedMember(Blackhole blackhole) {
+        map(generatedMember, blackhole);
+    }
+
+    private void map(FactoryExpression<?> projection, Blackhole blackhole) {
+        for (Object[] row : data) {
+            blackhole.consume(projection.newInstance(row));
+        }
+    }
+}
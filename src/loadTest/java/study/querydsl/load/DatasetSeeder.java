@@ -0,0 +1,89 @@
+package study.querydsl.load;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.bloom.UsernameBloomFilter;
+import study.querydsl.id.IdBlockAllocator;
+import study.querydsl.id.IdBlockAllocators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 편중된 데이터셋을 JDBC batch insert 로 넣는다.
+ * - 팀 크기: Zipf 분포. k 번째 팀은 1/k^s 에 비례하는 인원을 갖는다. (team1 이 가장 크다)
+ * - 나이: 평균 38, 표준편차 12 인 정규분포를 18~80 으로 자른 값
+ * 엔티티 이벤트 없이 넣으므로 끝나면 UsernameBloomFilter 를 다시 만든다. (회원 수만큼 이벤트를 내는 것보다 싸다)
+ */
+class DatasetSeeder {
+
+    private static final int BATCH_SIZE = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdBlockAllocators allocators;
+    private final UsernameBloomFilter usernameBloomFilter;
+
+    DatasetSeeder(JdbcTemplate jdbcTemplate, IdBlockAllocators allocators, UsernameBloomFilter usernameBloomFilter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.allocators = allocators;
+        this.usernameBloomFilter = usernameBloomFilter;
+    }
+
+    /** @return 팀별 인원 수 (index 0 = team1) */
+    int[] seed(LoadTestSettings settings) {
+        int[] sizes = zipfSizes(settings.members, settings.teams, settings.zipfExponent);
+        IdBlockAllocator teamIds = allocators.forSequence("team_seq");
+        IdBlockAllocator memberIds = allocators.forSequence("member_seq");
+        Random random = new Random(settings.seed);
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        int memberNo = 0;
+        for (int t = 0; t < sizes.length; t++) {
+            long teamId = teamIds.next();
+            jdbcTemplate.update("insert into team (id, name) values (?, ?)", teamId, teamName(t));
+            for (int i = 0; i < sizes[t]; i++) {
+                batch.add(new Object[]{memberIds.next(), "member" + memberNo++, age(random), teamId});
+                if (batch.size() == BATCH_SIZE) {
+                    insertMembers(batch);
+                }
+            }
+        }
+        insertMembers(batch);
+        usernameBloomFilter.rebuild();
+        return sizes;
+    }
+
+    static String teamName(int index) {
+        return "team" + (index + 1);
+    }
+
+    static int[] zipfSizes(int members, int teams, double exponent) {
+        double[] weights = new double[teams];
+        double total = 0;
+        for (int k = 0; k < teams; k++) {
+            weights[k] = 1 / Math.pow(k + 1, exponent);
+            total += weights[k];
+        }
+        int[] sizes = new int[teams];
+        int assigned = 0;
+        for (int k = 0; k < teams; k++) {
+            sizes[k] = Math.max(1, (int) (members * weights[k] / total));
+            assigned += sizes[k];
+        }
+        sizes[0] += Math.max(0, members - assigned); // 반올림 오차는 가장 큰 팀에
+        return sizes;
+    }
+
+    static int age(Random random) {
+        int age = (int) Math.round(38 + random.nextGaussian() * 12);
+        return Math.min(80, Math.max(18, age));
+    }
+
+    private void insertMembers(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+}
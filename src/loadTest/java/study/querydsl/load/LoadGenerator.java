@@ -0,0 +1,129 @@
+package study.querydsl.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * open-loop 부하 생성기.
+ *
+ * 요청 i 의 예정 시각은 start + i / rate 로 고정이고, 응답을 기다리지 않고 예정 시각마다 보낸다.
+ * 지연 시간은 실제로 보낸 시각이 아니라 예정 시각부터 잰다.
+ * 서버가 느려져서 클라이언트 스레드가 모두 묶이면 뒤 요청들은 큐에서 기다리는데,
+ * 그 대기 시간도 지연에 들어간다. (coordinated omission 보정)
+ */
+class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final LoadTestSettings settings;
+    private final String baseUrl;
+    private final int[] teamSizes;
+    private final List<Scenario> scenarios;
+    private final int totalWeight;
+    private final HttpClient client;
+
+    private final Map<String, ScenarioResult> results = new LinkedHashMap<>();
+
+    LoadGenerator(LoadTestSettings settings, String baseUrl, int[] teamSizes) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.teamSizes = teamSizes;
+        this.scenarios = Scenario.mix(settings.members);
+        this.totalWeight = scenarios.stream().mapToInt(s -> s.weight).sum();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        scenarios.forEach(s -> results.put(s.name, new ScenarioResult()));
+    }
+
+    Map<String, ScenarioResult> run() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(settings.threads);
+        Random random = new Random(settings.seed);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Scenario scenario = pick(random);
+            URI uri = URI.create(scenario.uri(baseUrl, random, teamSizes));
+            boolean measured = intended >= measureFrom;
+            workers.execute(() -> send(scenario, uri, intended, measured));
+        }
+
+        workers.shutdown();
+        if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+        return results;
+    }
+
+    private void send(Scenario scenario, URI uri, long intended, boolean measured) {
+        int status;
+        try {
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            status = response.statusCode();
+        } catch (Exception e) {
+            status = -1; // 연결 실패, 타임아웃
+        }
+        if (measured) {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+            results.get(scenario.name).record(latencyMicros, status);
+        }
+    }
+
+    private Scenario pick(Random random) {
+        int r = random.nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            r -= scenario.weight;
+            if (r < 0) {
+                return scenario;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    static class ScenarioResult {
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+        void record(long latencyMicros, int status) {
+            latency.recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+            statuses.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+        }
+
+        long errors() {
+            return statuses.entrySet().stream()
+                    .filter(e -> e.getKey() < 200 || e.getKey() >= 400)
+                    .mapToLong(e -> e.getValue().get())
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.load;
+
+/**
+ * 부하 테스트 설정. ./gradlew loadTest -Pload.rate=500 -Pload.duration=60 처럼 load.* 로 넘긴다.
+ */
+class LoadTestSettings {
+
+    final int rate = Integer.getInteger("load.rate", 200);                // 초당 요청 수 (목표)
+    final int durationSeconds = Integer.getInteger("load.duration", 30);  // 측정 구간
+    final int warmupSeconds = Integer.getInteger("load.warmup", 10);      // 측정에서 뺄 앞부분
+    final int threads = Integer.getInteger("load.threads", 64);           // 클라이언트 스레드 수
+    final int members = Integer.getInteger("load.members", 100_000);
+    final int teams = Integer.getInteger("load.teams", 200);
+    final double zipfExponent = Double.parseDouble(System.getProperty("load.zipf", "1.1")); // 팀 크기 편중 정도
+    final long seed = Long.getLong("load.seed", 42L);
+    final String output = System.getProperty("load.output", "build/reports/loadtest/result.json");
+}
@@ -0,0 +1,116 @@
+package study.querydsl.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.bloom.UsernameBloomFilter;
+import study.querydsl.id.IdBlockAllocators;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * MemberController 부하 테스트. ./gradlew loadTest
+ *
+ * 인메모리 H2 로 애플리케이션을 띄우고, 데이터를 넣고, /v1 /v2 /v3 에 목표 rate 로 요청을 보낸 뒤
+ * 처리량과 지연 백분위를 JSON 으로 남긴다. (load.output, 기본 build/reports/loadtest/result.json)
+ */
+public class MemberLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+
+        // 커맨드라인 인자가 application.yml 보다 우선한다.
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class).run(
+                "--spring.profiles.active=loadtest", // local 이 아니므로 InitMember 는 돌지 않는다.
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--decorator.datasource.p6spy.enable-logging=false");
+        try {
+            long seedStart = System.nanoTime();
+            int[] teamSizes = new DatasetSeeder(context.getBean(JdbcTemplate.class), context.getBean(IdBlockAllocators.class),
+                    context.getBean(UsernameBloomFilter.class))
+                    .seed(settings);
+            long seedMillis = (System.nanoTime() - seedStart) / 1_000_000;
+
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            Map<String, LoadGenerator.ScenarioResult> results = new LoadGenerator(settings, baseUrl, teamSizes).run();
+
+            Map<String, Object> report = report(settings, teamSizes, seedMillis, results);
+            File output = new File(settings.output);
+            output.getParentFile().mkdirs();
+            ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            objectMapper.writeValue(output, report);
+            System.out.println(objectMapper.writeValueAsString(report));
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Map<String, Object> report(LoadTestSettings settings, int[] teamSizes, long seedMillis,
+                                              Map<String, LoadGenerator.ScenarioResult> results) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("targetRate", settings.rate);
+        config.put("durationSeconds", settings.durationSeconds);
+        config.put("warmupSeconds", settings.warmupSeconds);
+        config.put("threads", settings.threads);
+        config.put("members", settings.members);
+        config.put("teams", settings.teams);
+        config.put("zipfExponent", settings.zipfExponent);
+        config.put("largestTeam", teamSizes[0]);
+        config.put("smallestTeam", teamSizes[teamSizes.length - 1]);
+        config.put("seedMillis", seedMillis);
+
+        Histogram overall = new Histogram(3);
+        Map<Integer, Long> overallStatuses = new TreeMap<>();
+        long overallErrors = 0;
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        for (Map.Entry<String, LoadGenerator.ScenarioResult> entry : results.entrySet()) {
+            LoadGenerator.ScenarioResult result = entry.getValue();
+            Map<Integer, Long> statuses = new TreeMap<>();
+            result.statuses.forEach((status, count) -> statuses.put(status, count.get()));
+            statuses.forEach((status, count) -> overallStatuses.merge(status, count, Long::sum));
+            overall.add(result.latency);
+            overallErrors += result.errors();
+            scenarios.put(entry.getKey(), summary(result.latency, result.errors(), statuses, settings.durationSeconds));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("overall", summary(overall, overallErrors, overallStatuses, settings.durationSeconds));
+        report.put("scenarios", scenarios);
+        return report;
+    }
+
+    /** 지연은 ms, 예정 시각 기준 (coordinated omission 보정) */
+    private static Map<String, Object> summary(Histogram latency, long errors, Map<Integer, Long> statuses,
+                                               int durationSeconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", latency.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("statuses", statuses);
+        summary.put("throughput", (double) latency.getTotalCount() / durationSeconds);
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", millis(latency.getValueAtPercentile(50)));
+        percentiles.put("p90", millis(latency.getValueAtPercentile(90)));
+        percentiles.put("p99", millis(latency.getValueAtPercentile(99)));
+        percentiles.put("p99.9", millis(latency.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(latency.getMaxValue()));
+        percentiles.put("mean", millis((long) latency.getMean()));
+        summary.put("latencyMs", percentiles);
+        return summary;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,63 @@
+package study.querydsl.load;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * 요청 모양 하나. 엔드포인트 + 조건 조합과 비율(weight).
+ * 조건 값은 요청마다 Random 으로 뽑는다.
+ */
+class Scenario {
+
+    final String name;
+    final int weight;
+    private final String path;
+    private final BiFunction<Random, int[], String> query;
+
+    Scenario(String name, int weight, String path, BiFunction<Random, int[], String> query) {
+        this.name = name;
+        this.weight = weight;
+        this.path = path;
+        this.query = query;
+    }
+
+    String uri(String baseUrl, Random random, int[] teamSizes) {
+        return baseUrl + path + "?" + query.apply(random, teamSizes);
+    }
+
+    static List<Scenario> mix(int members) {
+        return List.of(
+                new Scenario("v1.team", 15, "/v1/members",
+                        (r, teams) -> "teamName=" + team(r, teams)),
+                new Scenario("v1.team+age", 15, "/v1/members",
+                        (r, teams) -> "teamName=" + team(r, teams) + ageRange(r, 10)),
+                new Scenario("v1.username", 10, "/v1/members",
+                        (r, teams) -> "username=member" + r.nextInt(members)),
+                new Scenario("v1.age", 5, "/v1/members",
+                        (r, teams) -> ageRange(r, 0).substring(1)),
+                new Scenario("v2.team.page", 15, "/v2/members",
+                        (r, teams) -> "teamName=" + team(r, teams) + page(r, 5)),
+                new Scenario("v2.all.page", 10, "/v2/members",
+                        (r, teams) -> page(r, 50).substring(1)),
+                new Scenario("v3.team+age.page", 15, "/v3/members",
+                        (r, teams) -> "teamName=" + team(r, teams) + ageRange(r, 10) + page(r, 5)),
+                new Scenario("v3.username.page", 10, "/v3/members",
+                        (r, teams) -> "username=member" + r.nextInt(members) + page(r, 1))
+        );
+    }
+
+    /** 팀은 고르게 뽑는다. 팀 크기가 Zipf 라서 결과 크기는 편중된다. */
+    private static String team(Random random, int[] teamSizes) {
+        return DatasetSeeder.teamName(random.nextInt(teamSizes.length));
+    }
+
+    private static String ageRange(Random random, int width) {
+        int from = 18 + random.nextInt(50);
+        return "&ageGoe=" + from + "&ageLoe=" + (from + width);
+    }
+
+    private static String page(Random random, int pages) {
+        return "&page=" + random.nextInt(pages) + "&size=20";
+    }
+}
@@ -0,0 +1,109 @@
+package study.querydsl.bloom;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 문자열 Bloom filter. mightContain 이 false 면 넣은 적이 없는 값이다. (true 는 "있을 수도 있음")
+ * 비트 배열은 AtomicLongArray 라서 put 과 mightContain 을 여러 스레드에서 잠금 없이 불러도 된다.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private final AtomicLong inserted = new AtomicLong();
+
+    BloomFilter(long bitSize, int hashCount) {
+        long words = (bitSize + 63) / 64;
+        this.bits = new AtomicLongArray((int) words);
+        this.bitSize = words * 64;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * expectedInsertions 개를 넣었을 때 오탐률이 falsePositiveRate 가 되는 크기.
+     * 단, maxBytes 를 넘으면 maxBytes 로 자르고 (그만큼 오탐률이 올라간다) hash 수를 그 크기에 맞춘다.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate, long maxBytes) {
+        long n = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long bits = Math.max(64, Math.min(optimalBits, maxBytes * 8));
+        int hashCount = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashCount);
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        long h1 = fmix64(hash);
+        long h2 = fmix64(hash ^ 0x9E3779B97F4A7C15L) | 1; // 홀수: h1 + i*h2 가 한 자리에 몰리지 않게
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitSize);
+            setBit(index);
+        }
+        inserted.incrementAndGet();
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = fmix64(hash);
+        long h2 = fmix64(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitSize);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 지금까지 넣은 수 기준 예상 오탐률 (1 - e^(-kn/m))^k */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * inserted.get() / bitSize), hashCount);
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public long insertedCount() {
+        return inserted.get();
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index; // shift 는 하위 6비트만 쓴다.
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    /** FNV-1a 64 */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** murmur3 finalizer: FNV 결과의 비트를 고르게 섞는다. */
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb93fe53b9e53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,190 @@
+package study.querydsl.bloom;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeBatchEvent;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityType;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member.username Bloom filter. "없는 username" 을 DB 에 가지 않고 답하는 데 쓴다. (MemberUsernameCache)
+ *
+ * - 기동 직후(스케줄러의 첫 실행) member 테이블을 스트리밍으로 읽어서 만든다. 다 만들기 전에는 항상 "있을 수도 있음".
+ * - 회원 저장/username 변경 이벤트가 오면 바로(커밋 전에) 넣는다. 롤백되면 오탐이 하나 늘 뿐이다.
+ * - 삭제는 Bloom filter 에서 뺄 수 없으므로 rebuild-interval 마다 다시 만들어서 털어낸다.
+ *   다시 만드는 동안 들어오는 username 은 새 filter 에도 넣는다.
+ * - 엔티티 이벤트 없이 member 에 insert 하는 코드는 EntityChangePublisher 로 이벤트를 내거나 put() 을 직접 불러야 한다.
+ *   그렇지 않으면 다음 rebuild 전까지 그 username 은 "없음" 으로 답한다. 벌크 로드는 끝난 뒤 rebuild() 를 부른다.
+ * - 샤딩(study.sharding.enabled=true)을 켜면 쓰지 않는다. rebuild 가 기본 DataSource 만 읽으므로 샤드의 username 을 놓친다.
+ */
+@Slf4j
+@Component
+public class UsernameBloomFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double falsePositiveRate;
+    private final long maxBytes;
+    private final double headroom;
+    private final int minExpectedInsertions;
+    private final boolean enabled;
+
+    private volatile BloomFilter current;  // null: 아직 만드는 중
+    private volatile BloomFilter building; // rebuild 중인 새 filter
+    // 커밋 전인 트랜잭션에서 넣은 username. rebuild 의 스캔에 안 보일 수 있으므로 새 filter 에 따로 넣는다.
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter definiteMisses;
+    private final Counter falsePositives;
+
+    public UsernameBloomFilter(JdbcTemplate jdbcTemplate,
+                               MeterRegistry registry,
+                               @Value("${study.username-bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${study.username-bloom.max-memory-bytes:8388608}") long maxBytes,
+                               @Value("${study.username-bloom.headroom:2.0}") double headroom,
+                               @Value("${study.username-bloom.min-expected-insertions:10000}") int minExpectedInsertions,
+                               @Value("${study.sharding.enabled:false}") boolean sharded) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBytes = maxBytes;
+        this.headroom = headroom;
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.enabled = !sharded;
+
+        this.definiteMisses = registry.counter("member.username-bloom.definite-miss"); // DB 에 가지 않은 수
+        this.falsePositives = registry.counter("member.username-bloom.false-positive"); // "있을 수도" 였는데 없던 수
+        Gauge.builder("member.username-bloom.expected-fpp", this,
+                        filter -> filter.current == null ? 1 : filter.current.expectedFalsePositiveRate())
+                .register(registry);
+        Gauge.builder("member.username-bloom.bytes", this,
+                        filter -> filter.current == null ? 0 : filter.current.bitSize() / 8)
+                .register(registry);
+    }
+
+    /** false 면 그 username 의 회원은 없다. */
+    public boolean mightContain(String username) {
+        BloomFilter filter = current;
+        if (filter == null || filter.mightContain(username)) {
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    /** mightContain 이 true 였는데 DB 에 없었을 때 호출한다. (오탐률 측정) */
+    public void recordFalsePositive() {
+        if (current != null) {
+            falsePositives.increment();
+        }
+    }
+
+    @EventListener // 커밋을 기다리지 않는다. 커밋 직후의 조회가 "없음" 을 받지 않도록.
+    public void onChange(EntityChangeEvent event) {
+        if (isNewName(event)) {
+            put(event.getName());
+        }
+    }
+
+    @EventListener
+    public void onChanges(EntityChangeBatchEvent batch) {
+        List<String> usernames = new ArrayList<>(batch.getEvents().size());
+        for (EntityChangeEvent event : batch.getEvents()) {
+            if (isNewName(event)) {
+                usernames.add(event.getName());
+            }
+        }
+        putAll(usernames);
+    }
+
+    public void put(String username) {
+        putAll(Collections.singletonList(username));
+    }
+
+    /** 트랜잭션 안이면 synchronization 은 호출마다 하나만 건다. */
+    public void putAll(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            for (String username : usernames) {
+                inFlight.merge(username, 1, Integer::sum);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    for (String username : usernames) {
+                        inFlight.computeIfPresent(username, (name, count) -> count == 1 ? null : count - 1);
+                    }
+                }
+            });
+        }
+        // inFlight 에 넣은 뒤에 building 을, 그 다음에 current 를 읽는다.
+        // - building 이 아직 없으면: rebuild 는 building 을 세운 뒤에 inFlight 를 읽으므로 이 username 을 본다.
+        // - building 이 이미 치워졌으면: rebuild 는 current 를 바꾼 뒤에 치우므로 아래에서 읽는 current 가 새 filter 다.
+        // current 를 먼저 읽으면 옛 filter 에만 넣고, 그 사이 끝난 rebuild 의 새 filter 에는 빠질 수 있다.
+        BloomFilter next = building;
+        if (next != null) {
+            usernames.forEach(next::put);
+        }
+        BloomFilter filter = current;
+        if (filter != null && filter != next) {
+            usernames.forEach(filter::put);
+        }
+    }
+
+    private static boolean isNewName(EntityChangeEvent event) {
+        return event.getEntityType() == EntityType.MEMBER
+                && event.getChangeType() != ChangeType.DELETE
+                && event.getName() != null;
+    }
+
+    /** 첫 실행이 기동 시 빌드다. 이후 rebuild-interval 마다 다시 만들어서 삭제된 username 을 털어낸다. */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${study.username-bloom.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return; // current 가 null 이므로 항상 "있을 수도 있음"
+        }
+        long start = System.nanoTime();
+        Long count = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+        long expected = Math.max(minExpectedInsertions, (long) ((count == null ? 0 : count) * headroom));
+        BloomFilter next = BloomFilter.create(expected, falsePositiveRate, maxBytes);
+
+        building = next;
+        try {
+            inFlight.keySet().forEach(next::put);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("select username from member");
+                ps.setFetchSize(10_000); // 한 번에 다 올리지 않고 나눠 읽는다.
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                String username = rs.getString(1);
+                if (username != null) {
+                    next.put(username);
+                }
+            });
+            current = next;
+        } finally {
+            building = null;
+        }
+        log.info("username bloom filter rebuilt: {} names, {} KB, k={}, expected fpp={}, {} ms",
+                next.insertedCount(), next.bitSize() / 8 / 1024, next.hashCount(),
+                String.format("%.4f", next.expectedFalsePositiveRate()), (System.nanoTime() - start) / 1_000_000);
+    }
+}
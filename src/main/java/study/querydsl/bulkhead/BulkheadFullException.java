@@ -0,0 +1,13 @@
+package study.querydsl.bulkhead;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** 벌크헤드에 빈 자리가 없을 때. 대기열에 쌓아두지 않고 바로 503 으로 돌려보낸다. */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(QueryClass queryClass) {
+        super("bulkhead full: " + queryClass);
+    }
+}
@@ -0,0 +1,79 @@
+package study.querydsl.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * QueryClass 별 동시 실행 한도.
+ * 조회 하나가 커넥션 하나를 잡으므로, 한도의 합을 커넥션 풀 크기 이하로 두면
+ * HEAVY 조회가 아무리 몰려도 INTERACTIVE 조회 몫의 커넥션은 남아 있다.
+ */
+@Component
+public class QueryBulkhead {
+
+    private final Map<QueryClass, Compartment> compartments = new EnumMap<>(QueryClass.class);
+
+    public QueryBulkhead(@Value("${study.bulkhead.interactive.max-concurrent:8}") int interactiveMaxConcurrent,
+                         @Value("${study.bulkhead.interactive.max-wait-ms:100}") long interactiveMaxWaitMillis,
+                         @Value("${study.bulkhead.heavy.max-concurrent:2}") int heavyMaxConcurrent,
+                         @Value("${study.bulkhead.heavy.max-wait-ms:0}") long heavyMaxWaitMillis,
+                         MeterRegistry registry) {
+        compartments.put(QueryClass.INTERACTIVE,
+                new Compartment(QueryClass.INTERACTIVE, interactiveMaxConcurrent, interactiveMaxWaitMillis, registry));
+        compartments.put(QueryClass.HEAVY,
+                new Compartment(QueryClass.HEAVY, heavyMaxConcurrent, heavyMaxWaitMillis, registry));
+    }
+
+    public <T> T execute(QueryClass queryClass, Supplier<T> query) {
+        Compartment compartment = compartments.get(queryClass);
+        compartment.acquire();
+        try {
+            return query.get();
+        } finally {
+            compartment.permits.release();
+        }
+    }
+
+    private static class Compartment {
+        private final QueryClass queryClass;
+        private final Semaphore permits;
+        private final long maxWaitMillis;
+        private final Counter rejected;
+
+        Compartment(QueryClass queryClass, int maxConcurrent, long maxWaitMillis, MeterRegistry registry) {
+            this.queryClass = queryClass;
+            this.permits = new Semaphore(maxConcurrent);
+            this.maxWaitMillis = maxWaitMillis;
+            String tag = queryClass.name().toLowerCase();
+            this.rejected = Counter.builder("member.query.bulkhead.rejected")
+                    .tag("class", tag)
+                    .register(registry);
+            Gauge.builder("member.query.bulkhead.available", permits, Semaphore::availablePermits)
+                    .tag("class", tag)
+                    .register(registry);
+        }
+
+        void acquire() {
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            if (!acquired) {
+                rejected.increment();
+                throw new BulkheadFullException(queryClass);
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package study.querydsl.bulkhead;
+
+/** 조회 요청 분류. 분류마다 별도의 벌크헤드(동시 실행 한도)를 사용한다. */
+public enum QueryClass {
+    INTERACTIVE, // 조건이 있거나 작은 페이지 조회
+    HEAVY        // 조건 없는 전체 조회, 큰 페이지, 깊은 offset
+}
@@ -0,0 +1,50 @@
+package study.querydsl.bulkhead;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/** 엔드포인트 종류와 조건/페이지 크기로 조회 비용을 추정해서 QueryClass 를 정한다. */
+@Component
+public class QueryClassifier {
+
+    private final int heavyPageSize;   // 이 크기를 넘는 페이지는 HEAVY
+    private final long heavyOffset;    // 이 offset 을 넘는 깊은 페이지도 HEAVY (앞쪽 row 를 전부 읽고 버린다)
+
+    public QueryClassifier(@Value("${study.bulkhead.heavy-page-size:500}") int heavyPageSize,
+                           @Value("${study.bulkhead.heavy-offset:10000}") long heavyOffset) {
+        this.heavyPageSize = heavyPageSize;
+        this.heavyOffset = heavyOffset;
+    }
+
+    /** 페이징 없는 조회(/v1/members): 조건이 하나도 없으면 전체 조회가 된다. */
+    public QueryClass classify(MemberSearchCondition condition) {
+        return isEmpty(condition) ? QueryClass.HEAVY : QueryClass.INTERACTIVE;
+    }
+
+    /** 페이징 조회(/v2, /v3): 페이지 크기와 offset 으로 판단한다. */
+    public QueryClass classify(MemberSearchCondition condition, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return classify(condition);
+        }
+        if (pageable.getPageSize() > heavyPageSize || pageable.getOffset() > heavyOffset) {
+            return QueryClass.HEAVY;
+        }
+        return QueryClass.INTERACTIVE;
+    }
+
+    /** id 배치 조회(/members/batch): id 수를 페이지 크기처럼 본다. */
+    public QueryClass classifyBatch(int idCount) {
+        return idCount > heavyPageSize ? QueryClass.HEAVY : QueryClass.INTERACTIVE;
+    }
+
+    private boolean isEmpty(MemberSearchCondition condition) {
+        return !hasText(condition.getUsername())
+                && !hasText(condition.getTeamName())
+                && condition.getAgeGoe() == null
+                && condition.getAgeLoe() == null;
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydsl.changelog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import study.querydsl.event.EntityChangeEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 다른 노드가 남긴 change_log 를 읽어서 이 노드에 EntityChangeEvent(remote) 로 다시 발행한다.
+ * 캐시들(TeamNameResolver, MemberUsernameCache, UsernameBloomFilter, DataVersion)은 로컬 변경과 똑같이 처리한다.
+ * 메시지 브로커 없이 같은 DB(H2 서버)를 쓰는 노드끼리 동작한다.
+ *
+ * high-water-mark: 지금까지 본 가장 큰 id(maxSeen) 이후만 읽는다. (id 인덱스 범위 조회 한 번)
+ * id 는 insert 때 정해지고 커밋은 그보다 늦을 수 있으므로, 건너뛴 id 는 gap 으로 기억해 두고
+ * 다음 poll 에서 id 로 다시 찾는다. gap-grace 가 지나도 안 보이면 롤백된 것으로 보고 버린다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "study.change-log.enabled", havingValue = "true", matchIfMissing = true)
+public class ChangeLogPoller {
+
+    private static final int MAX_GAPS = 10_000;
+    private static final int MAX_IN_SIZE = 512;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+    private final int batchSize;
+    private final long gapGraceMillis;
+    private final long retentionMillis;
+
+    private long maxSeen = -1; // -1: 아직 시작 안 함
+    private final Map<Long, Long> gaps = new TreeMap<>(); // id -> 처음 건너뛴 시각
+
+    private final Counter applied;
+    private final Counter gapsExpired;
+    private final Timer lag;
+    private final AtomicLong lastLagMillis = new AtomicLong();
+
+    public ChangeLogPoller(JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           ChangeLogWriter changeLogWriter,
+                           MeterRegistry registry,
+                           @Value("${study.change-log.batch-size:1000}") int batchSize,
+                           @Value("${study.change-log.gap-grace-ms:5000}") long gapGraceMillis,
+                           @Value("${study.change-log.retention-minutes:60}") long retentionMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = changeLogWriter.getNodeId();
+        this.batchSize = batchSize;
+        this.gapGraceMillis = gapGraceMillis;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+
+        this.applied = registry.counter("change-log.applied");
+        this.gapsExpired = registry.counter("change-log.gaps.expired");
+        // 다른 노드에서 기록된 시각 ~ 이 노드에서 무효화한 시각. (노드 간 시계 차이가 섞인다)
+        this.lag = Timer.builder("change-log.lag")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("change-log.lag.last", lastLagMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("change-log.gaps", this, poller -> poller.gapCount())
+                .register(registry);
+        Gauge.builder("change-log.high-water-mark", this, poller -> poller.highWaterMark())
+                .register(registry);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${study.change-log.poll-interval-ms:200}")
+    public synchronized void poll() {
+        if (maxSeen < 0) {
+            // 기동 전의 기록은 볼 필요가 없다. (캐시가 비어 있음)
+            Long max = jdbcTemplate.queryForObject("select max(id) from change_log", Long.class);
+            maxSeen = max == null ? 0 : max;
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        List<ChangeLogRow> rows;
+        do {
+            rows = jdbcTemplate.query(ChangeLogRow.SELECT + "where id > ? order by id limit ?", ChangeLogRow.ROW_MAPPER, maxSeen, batchSize);
+            for (ChangeLogRow row : rows) {
+                for (long missing = Math.max(maxSeen + 1, row.id - MAX_GAPS); missing < row.id; missing++) {
+                    gaps.putIfAbsent(missing, now);
+                }
+                apply(row, now);
+                maxSeen = row.id;
+            }
+        } while (rows.size() == batchSize);
+
+        if (!gaps.isEmpty()) {
+            List<Long> ids = new ArrayList<>(gaps.keySet());
+            for (int from = 0; from < ids.size(); from += MAX_IN_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_SIZE, ids.size()));
+                String in = String.join(",", Collections.nCopies(chunk.size(), "?"));
+                for (ChangeLogRow row : jdbcTemplate.query(ChangeLogRow.SELECT + "where id in (" + in + ")", ChangeLogRow.ROW_MAPPER, chunk.toArray())) {
+                    gaps.remove(row.id); // 늦게 커밋된 기록
+                    apply(row, now);
+                }
+            }
+            expireGaps(now);
+        }
+    }
+
+    /** retention 보다 오래된 기록을 지운다. 여러 노드가 같이 지워도 상관없다. */
+    @Scheduled(fixedDelayString = "${study.change-log.purge-interval-ms:60000}")
+    public void purge() {
+        int deleted = jdbcTemplate.update("delete from change_log where created_at < ?",
+                System.currentTimeMillis() - retentionMillis);
+        if (deleted > 0) {
+            log.debug("purged {} change_log rows", deleted);
+        }
+    }
+
+    private void apply(ChangeLogRow row, long now) {
+        if (nodeId.equals(row.nodeId)) {
+            return; // 자기 노드의 변경은 커밋할 때 이미 처리했다.
+        }
+        eventPublisher.publishEvent(new EntityChangeEvent(row.entityType, row.entityId, row.changeType, row.name, true));
+        applied.increment();
+        long lagMillis = Math.max(0, now - row.createdAt);
+        lag.record(lagMillis, TimeUnit.MILLISECONDS);
+        lastLagMillis.set(lagMillis);
+    }
+
+    private void expireGaps(long now) {
+        Iterator<Map.Entry<Long, Long>> it = gaps.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue() > gapGraceMillis) {
+                it.remove(); // 롤백됐거나 gap-grace 보다 오래 열려 있는 트랜잭션
+                gapsExpired.increment();
+            }
+        }
+    }
+
+    synchronized int gapCount() {
+        return gaps.size();
+    }
+
+    synchronized long highWaterMark() {
+        return maxSeen;
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.changelog;
+
+import org.springframework.jdbc.core.RowMapper;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityType;
+
+/** change_log 한 줄. ChangeLogPoller, MemberChangeFeed 공용. */
+class ChangeLogRow {
+
+    static final String SELECT = "select id, node_id, entity_type, entity_id, change_type, name, created_at from change_log ";
+
+    static final RowMapper<ChangeLogRow> ROW_MAPPER = (rs, rowNum) -> new ChangeLogRow(
+            rs.getLong("id"),
+            rs.getString("node_id"),
+            EntityType.valueOf(rs.getString("entity_type")),
+            (Long) rs.getObject("entity_id"),
+            ChangeType.valueOf(rs.getString("change_type")),
+            rs.getString("name"),
+            rs.getLong("created_at"));
+
+    final long id;
+    final String nodeId;
+    final EntityType entityType;
+    final Long entityId;
+    final ChangeType changeType;
+    final String name;
+    final long createdAt;
+
+    ChangeLogRow(long id, String nodeId, EntityType entityType, Long entityId,
+                 ChangeType changeType, String name, long createdAt) {
+        this.id = id;
+        this.nodeId = nodeId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.changeType = changeType;
+        this.name = name;
+        this.createdAt = createdAt;
+    }
+}
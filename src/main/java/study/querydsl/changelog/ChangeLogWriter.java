@@ -0,0 +1,75 @@
+package study.querydsl.changelog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.event.EntityChangeEvent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * change_log 에 변경 기록을 넣는다. EntityChangePublisher 가 이벤트마다 부른다.
+ * JdbcTemplate 은 진행 중인 JPA 트랜잭션의 커넥션을 같이 쓰므로 쓰기와 같이 커밋/롤백된다.
+ * (엔티티 리스너 안에서는 em.persist 를 할 수 없어서 JDBC 로 넣는다)
+ */
+@Component
+public class ChangeLogWriter {
+
+    private static final String INSERT_PREFIX =
+            "insert into change_log (node_id, entity_type, entity_id, change_type, name, created_at) values ";
+    private static final String ROW_VALUES = "(?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SQL = INSERT_PREFIX + ROW_VALUES;
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+
+    public ChangeLogWriter(JdbcTemplate jdbcTemplate,
+                           @Value("${study.change-log.enabled:true}") boolean enabled,
+                           @Value("${study.change-log.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+    }
+
+    public void append(EntityChangeEvent event) {
+        if (!enabled || event.isRemote()) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_SQL, nodeId, event.getEntityType().name(), event.getId(),
+                event.getChangeType().name(), event.getName(), System.currentTimeMillis());
+    }
+
+    /** 벌크 쓰기용. 이벤트마다 왕복하지 않도록 여러 row 를 insert 하나로 넣는다. */
+    public void appendAll(List<EntityChangeEvent> events) {
+        if (!enabled) {
+            return;
+        }
+        List<EntityChangeEvent> local = events.stream()
+                .filter(event -> !event.isRemote())
+                .collect(Collectors.toList());
+        long now = System.currentTimeMillis();
+        for (int from = 0; from < local.size(); from += MAX_ROWS_PER_INSERT) {
+            List<EntityChangeEvent> chunk = local.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, local.size()));
+            Object[] args = new Object[chunk.size() * 6];
+            int i = 0;
+            for (EntityChangeEvent event : chunk) {
+                args[i++] = nodeId;
+                args[i++] = event.getEntityType().name();
+                args[i++] = event.getId();
+                args[i++] = event.getChangeType().name();
+                args[i++] = event.getName();
+                args[i++] = now;
+            }
+            jdbcTemplate.update(INSERT_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), ROW_VALUES)), args);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,361 @@
+package study.querydsl.changelog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import study.querydsl.dto.MemberBatchResult;
+import study.querydsl.dto.MemberChangeDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityType;
+import study.querydsl.repository.MemberRepository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * /v1/members/changes (SSE) 구독 관리.
+ * change_log 를 outbox 로 쓴다. Member/Team 쓰기와 같은 트랜잭션에서 기록되므로(ChangeLogWriter) 커밋된 변경만, 빠짐없이 보인다.
+ *
+ * tick 마다 change_log 를 id 순서대로 한 번 읽어서, 바뀐 회원의 현재 값을 한 번에 다시 조회한 뒤(searchByIds)
+ * 구독자마다 조건(MemberSearchCondition)에 맞는 변경만 모아 SSE 이벤트 하나로 보낸다. 이벤트 id 는 change_log id.
+ * 클라이언트가 Last-Event-ID 로 다시 연결하면 그 뒤부터 따로 읽어서 보내준 뒤 공용 흐름에 합류한다.
+ *
+ * 순서를 지키기 위해 id 가 비어 있으면(먼저 insert 했지만 아직 커밋 안 된 트랜잭션) gap-grace 동안 기다린다.
+ *
+ * 전송은 스케줄러 스레드가 아니라 전용 스레드 풀(send-threads)에서 한다. 구독자마다 한 번에 하나만 보내고,
+ * 아직 보내는 중인 구독자는 그 tick 을 건너뛴 뒤 다음 tick 에 catch-up 으로 따라온다.
+ * send-timeout 이 지나도 끝나지 않는 전송은 구독을 끊는다. (쓰기가 풀리면 그 스레드가 연결을 닫는다)
+ */
+@Slf4j
+@Component
+public class MemberChangeFeed {
+
+    private static final String EVENT_NAME = "members";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberRepository memberRepository;
+    private final int batchSize;
+    private final long gapGraceMillis;
+    private final long timeoutMillis;
+    private final long keepAliveMillis;
+    private final int maxSubscribers;
+    private final long sendTimeoutMillis;
+    private final ThreadPoolExecutor sender;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private long cursor = -1;  // 여기까지는 빠짐없이 읽었다. -1: 아직 시작 안 함
+    private long gapId = -1;   // 기다리는 중인 id
+    private long gapSince;
+
+    private final Counter sent;
+    private final Counter dropped;
+
+    public MemberChangeFeed(JdbcTemplate jdbcTemplate,
+                            MemberRepository memberRepository,
+                            MeterRegistry registry,
+                            @Value("${study.change-feed.batch-size:1000}") int batchSize,
+                            @Value("${study.change-feed.gap-grace-ms:2000}") long gapGraceMillis,
+                            @Value("${study.change-feed.timeout-ms:1800000}") long timeoutMillis,
+                            @Value("${study.change-feed.keep-alive-ms:15000}") long keepAliveMillis,
+                            @Value("${study.change-feed.max-subscribers:100}") int maxSubscribers,
+                            @Value("${study.change-feed.send-threads:4}") int sendThreads,
+                            @Value("${study.change-feed.send-timeout-ms:5000}") long sendTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.memberRepository = memberRepository;
+        this.batchSize = batchSize;
+        this.gapGraceMillis = gapGraceMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.keepAliveMillis = keepAliveMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 구독자마다 한 번에 하나만 넣으므로 큐는 max-subscribers 이상 차지 않는다.
+        this.sender = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxSubscribers), r -> {
+            Thread thread = new Thread(r, "member-change-feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.sent = registry.counter("member.change-feed.sent");
+        this.dropped = registry.counter("member.change-feed.dropped");
+        Gauge.builder("member.change-feed.subscribers", subscribers, List::size)
+                .register(registry);
+    }
+
+    /** lastEventId 가 없으면 다음 tick 부터의 변경을 받는다. */
+    public SseEmitter subscribe(MemberSearchCondition condition, Long lastEventId) {
+        // 시간이 지나면 끊는다. EventSource 는 Last-Event-ID 로 다시 연결한다.
+        return subscribe(condition, lastEventId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(MemberSearchCondition condition, Long lastEventId, SseEmitter emitter) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many change feed subscribers");
+        }
+        Subscriber subscriber = new Subscriber(emitter, condition, lastEventId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${study.change-feed.tick-ms:500}")
+    public synchronized void tick() {
+        if (cursor < 0) {
+            Long max = jdbcTemplate.queryForObject("select max(id) from change_log", Long.class);
+            cursor = max == null ? 0 : max;
+        }
+        long from = cursor;
+        List<ChangeLogRow> rows = readContiguous(from);
+        if (!rows.isEmpty()) {
+            cursor = rows.get(rows.size() - 1).id;
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        long to = cursor;
+        Map<Long, MemberTeamDto> current = currentMembers(rows);
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.state.compareAndSet(Subscriber.IDLE, Subscriber.SENDING)) {
+                // 아직 전에 보내던 것을 쓰는 중. 이번 변경은 끝난 뒤 catch-up 으로 받는다.
+                if (now - subscriber.sendStartedAt > sendTimeoutMillis) {
+                    timeOut(subscriber);
+                }
+                continue;
+            }
+            if (subscriber.position == null) {
+                subscriber.position = from;
+            }
+            subscriber.sendStartedAt = now;
+            try {
+                sender.execute(() -> deliver(subscriber, from, to, rows, current));
+            } catch (RejectedExecutionException e) {
+                subscriber.state.set(Subscriber.IDLE); // 다음 tick 에 다시
+            }
+        }
+    }
+
+    /** 전송 스레드에서 실행된다. 구독자 하나에 대해 동시에 하나만 돈다. */
+    private void deliver(Subscriber subscriber, long from, long to, List<ChangeLogRow> rows, Map<Long, MemberTeamDto> current) {
+        try {
+            if (subscriber.position < from) {
+                catchUp(subscriber, from); // Last-Event-ID 로 다시 연결했거나, 느려서 tick 을 건너뛴 구독자
+            }
+            send(subscriber, rows, current);
+            subscriber.position = to;
+            long now = System.currentTimeMillis();
+            if (now - subscriber.lastSentAt > keepAliveMillis) {
+                subscriber.emitter.send(SseEmitter.event().comment("keep-alive")); // 끊긴 연결을 알아채기 위해
+                subscriber.lastSentAt = now;
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            if (subscriber.state.getAndSet(Subscriber.CLOSED) != Subscriber.CLOSED) {
+                subscriber.emitter.completeWithError(e);
+            }
+            return;
+        } catch (RuntimeException e) {
+            log.warn("change feed delivery failed, retrying from {}", subscriber.position, e); // position 그대로
+        }
+        if (!subscriber.state.compareAndSet(Subscriber.SENDING, Subscriber.IDLE)) {
+            // 보내는 동안 send-timeout 이 지나 끊긴 구독자. 쓰기가 풀린 지금 닫는다.
+            subscriber.state.set(Subscriber.CLOSED);
+            subscriber.emitter.completeWithError(new IOException("change feed send timed out"));
+        }
+    }
+
+    /** 막힌 쓰기를 스케줄러 스레드에서 기다리지 않는다. 보내던 스레드가 끝날 때 닫는다. */
+    private void timeOut(Subscriber subscriber) {
+        if (subscriber.state.compareAndSet(Subscriber.SENDING, Subscriber.TIMED_OUT) && subscribers.remove(subscriber)) {
+            dropped.increment();
+        }
+    }
+
+    /** (position, to] 를 batch-size 씩 나눠 보낸다. 보관 기간이 지나서 지워졌으면 RESYNC. */
+    private void catchUp(Subscriber subscriber, long to) throws IOException {
+        Long oldest = jdbcTemplate.queryForObject("select min(id) from change_log", Long.class);
+        if (oldest == null || oldest > subscriber.position + 1) {
+            List<MemberChangeDto> resync = new ArrayList<>();
+            resync.add(MemberChangeDto.resync());
+            emit(subscriber, to, resync);
+            return;
+        }
+        long position = subscriber.position;
+        while (position < to) {
+            List<ChangeLogRow> rows = jdbcTemplate.query(
+                    ChangeLogRow.SELECT + "where id > ? and id <= ? order by id limit ?",
+                    ChangeLogRow.ROW_MAPPER, position, to, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            send(subscriber, rows, currentMembers(rows));
+            position = rows.get(rows.size() - 1).id;
+        }
+    }
+
+    /** cursor 다음부터 빈 id 없이 이어지는 부분만 읽는다. 빈 id 는 gap-grace 가 지나면 건너뛴다. (롤백) */
+    private List<ChangeLogRow> readContiguous(long after) {
+        List<ChangeLogRow> rows = jdbcTemplate.query(
+                ChangeLogRow.SELECT + "where id > ? order by id limit ?", ChangeLogRow.ROW_MAPPER, after, batchSize);
+        List<ChangeLogRow> contiguous = new ArrayList<>(rows.size());
+        long expected = after + 1;
+        long now = System.currentTimeMillis();
+        for (ChangeLogRow row : rows) {
+            if (row.id != expected) {
+                if (gapId != expected) {
+                    gapId = expected;
+                    gapSince = now;
+                }
+                if (now - gapSince < gapGraceMillis) {
+                    break;
+                }
+            }
+            gapId = -1;
+            contiguous.add(row);
+            expected = row.id + 1;
+        }
+        return contiguous;
+    }
+
+    private Map<Long, MemberTeamDto> currentMembers(List<ChangeLogRow> rows) {
+        Set<Long> memberIds = new LinkedHashSet<>();
+        for (ChangeLogRow row : rows) {
+            if (row.entityType == EntityType.MEMBER && row.entityId != null) {
+                memberIds.add(row.entityId);
+            }
+        }
+        Map<Long, MemberTeamDto> current = new HashMap<>();
+        if (memberIds.isEmpty()) {
+            return current;
+        }
+        for (MemberBatchResult result : memberRepository.searchByIds(new ArrayList<>(memberIds), true)) {
+            if (result.isFound()) {
+                current.put(result.getId(), result.getMember());
+            }
+        }
+        return current;
+    }
+
+    private void send(Subscriber subscriber, List<ChangeLogRow> rows, Map<Long, MemberTeamDto> current) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<MemberChangeDto> changes = changesFor(subscriber.condition, rows, current);
+        if (!changes.isEmpty()) {
+            emit(subscriber, rows.get(rows.size() - 1).id, changes);
+        }
+    }
+
+    private void emit(Subscriber subscriber, long eventId, List<MemberChangeDto> changes) throws IOException {
+        subscriber.emitter.send(SseEmitter.event()
+                .id(String.valueOf(eventId))
+                .name(EVENT_NAME)
+                .data(changes, MediaType.APPLICATION_JSON));
+        subscriber.lastSentAt = System.currentTimeMillis();
+        sent.increment();
+    }
+
+    /** 같은 회원이 여러 번 바뀌었으면 마지막 상태 하나만 보낸다. */
+    static List<MemberChangeDto> changesFor(MemberSearchCondition condition, List<ChangeLogRow> rows,
+                                            Map<Long, MemberTeamDto> current) {
+        Map<Long, MemberChangeDto> members = new LinkedHashMap<>();
+        List<MemberChangeDto> changes = new ArrayList<>();
+        boolean resync = false;
+        for (ChangeLogRow row : rows) {
+            if (row.entityType == EntityType.TEAM) {
+                if (row.changeType == ChangeType.INSERT) {
+                    continue; // 새 팀에는 아직 회원이 없다.
+                }
+                changes.add(MemberChangeDto.team(row.entityId, row.changeType == ChangeType.UPDATE ? row.name : null));
+                resync |= hasText(condition.getTeamName()); // 팀 이름 조건의 결과가 통째로 바뀔 수 있다.
+                continue;
+            }
+            MemberTeamDto member = current.get(row.entityId);
+            members.remove(row.entityId);
+            if (member != null && matches(condition, member)) {
+                members.put(row.entityId, MemberChangeDto.upsert(member));
+            } else if (member == null || row.changeType != ChangeType.INSERT) {
+                members.put(row.entityId, MemberChangeDto.remove(row.entityId));
+            }
+        }
+        changes.addAll(members.values());
+        if (resync) {
+            changes.add(MemberChangeDto.resync());
+        }
+        return changes;
+    }
+
+    /** MemberJpaRepository.search 의 where 조건과 같은 판단 */
+    static boolean matches(MemberSearchCondition condition, MemberTeamDto member) {
+        if (hasText(condition.getUsername()) && !condition.getUsername().equals(member.getUsername())) {
+            return false;
+        }
+        if (hasText(condition.getTeamName()) && !condition.getTeamName().equals(member.getTeamName())) {
+            return false;
+        }
+        if (condition.getAgeGoe() != null && (member.getAge() == null || member.getAge() < condition.getAgeGoe())) {
+            return false;
+        }
+        return condition.getAgeLoe() == null || (member.getAge() != null && member.getAge() <= condition.getAgeLoe());
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    /** position, lastSentAt 은 SENDING 을 잡은 스레드만 바꾼다. (state 의 CAS 가 스레드 사이의 순서를 보장) */
+    private static class Subscriber {
+        static final int IDLE = 0;
+        static final int SENDING = 1;
+        static final int TIMED_OUT = 2; // 보내는 중에 끊었다. 보내던 스레드가 닫는다.
+        static final int CLOSED = 3;
+
+        final SseEmitter emitter;
+        final MemberSearchCondition condition;
+        final AtomicInteger state = new AtomicInteger(IDLE);
+        Long position; // 이 구독자에게 보낸 마지막 change_log id. null: 다음 tick 부터
+        long lastSentAt = System.currentTimeMillis();
+        volatile long sendStartedAt;
+
+        Subscriber(SseEmitter emitter, MemberSearchCondition condition, Long position) {
+            this.emitter = emitter;
+            this.condition = condition;
+            this.position = position;
+        }
+    }
+}
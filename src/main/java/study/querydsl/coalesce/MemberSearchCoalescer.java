@@ -0,0 +1,113 @@
+package study.querydsl.coalesce;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.bulkhead.QueryBulkhead;
+import study.querydsl.bulkhead.QueryClass;
+import study.querydsl.bulkhead.QueryClassifier;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.DataVersion;
+import study.querydsl.timeout.QueryDeadline;
+import study.querydsl.timeout.QueryDeadlineFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 같은 조건 + 컬럼 + 페이지의 조회가 동시에 몰리면 content/count 쿼리를 한 번만 실행한다. (SingleFlight)
+ * QueryBulkhead 자리는 실제로 쿼리를 실행하는 leader 만 잡는다. 기다리는 쪽은 커넥션을 쓰지 않으므로.
+ * 결과의 DTO 는 수정할 수 있으므로 기다린 쪽에는 복사본을 준다. (목록, Page 의 content 는 원래 수정할 수 없다)
+ *
+ * key 에 DataVersion 을 넣어서, 쓰기가 커밋된 뒤에 들어온 조회가 그 전에 시작한 조회 결과를 받지 않게 한다.
+ * 쓰기 트랜잭션 안에서는 커밋 전 데이터를 남에게 줄 수 있으므로 합치지 않는다.
+ */
+@Component
+public class MemberSearchCoalescer {
+
+    private final DataVersion dataVersion;
+    private final QueryBulkhead queryBulkhead;
+    private final QueryClassifier queryClassifier;
+    private final SingleFlight<List<Object>, Object> singleFlight;
+
+    public MemberSearchCoalescer(DataVersion dataVersion, QueryBulkhead queryBulkhead, QueryClassifier queryClassifier,
+                                 MeterRegistry registry) {
+        this.dataVersion = dataVersion;
+        this.queryBulkhead = queryBulkhead;
+        this.queryClassifier = queryClassifier;
+        this.singleFlight = new SingleFlight<>(
+                registry.counter("member.search.coalesced"), // 아낀 실행 수
+                QueryDeadlineFilter::isQueryTimeout, // leader 의 마감이 더 짧았으면 기다리던 쪽이 다시 실행한다.
+                MemberSearchCoalescer::remainingMillis);
+        Gauge.builder("member.search.in-flight", singleFlight, SingleFlight::inFlightCount)
+                .register(registry);
+    }
+
+    /** pageable 은 페이징 없는 조회면 null */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String method, MemberSearchCondition condition, Set<MemberField> fields,
+                         Pageable pageable, Supplier<T> search) {
+        QueryClass queryClass = pageable == null
+                ? queryClassifier.classify(condition) : queryClassifier.classify(condition, pageable);
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return queryBulkhead.execute(queryClass, search);
+        }
+        List<Object> key = Arrays.asList(method, dataVersion.current(),
+                text(condition.getUsername()), text(condition.getTeamName()), // null 과 빈 문자열은 같은 조건
+                condition.getAgeGoe(), condition.getAgeLoe(),
+                fields, pageable); // PageRequest 는 sort 까지 equals 로 비교한다.
+        boolean[] led = {false};
+        Object result = singleFlight.execute(key, () -> {
+            led[0] = true;
+            return queryBulkhead.execute(queryClass, search);
+        });
+        return led[0] ? (T) result : (T) copyOf(result);
+    }
+
+    /** search 결과(List, Page)의 DTO 를 복사한다. */
+    @SuppressWarnings("unchecked")
+    static Object copyOf(Object result) {
+        if (result instanceof Page) {
+            return ((Page<MemberTeamDto>) result).map(MemberSearchCoalescer::copyOf);
+        }
+        if (result instanceof List) {
+            List<MemberTeamDto> copies = new ArrayList<>();
+            for (MemberTeamDto dto : (List<MemberTeamDto>) result) {
+                copies.add(copyOf(dto));
+            }
+            return Collections.unmodifiableList(copies);
+        }
+        return result;
+    }
+
+    private static MemberTeamDto copyOf(MemberTeamDto dto) {
+        MemberTeamDto copy = new MemberTeamDto(); // fields= 로 비어 있는 값(null)도 그대로 옮긴다.
+        copy.setMemberId(dto.getMemberId());
+        copy.setUsername(dto.getUsername());
+        copy.setAge(dto.getAge());
+        copy.setTeamId(dto.getTeamId());
+        copy.setTeamName(dto.getTeamName());
+        return copy;
+    }
+
+    private static long remainingMillis() {
+        QueryDeadline deadline = QueryDeadline.current();
+        return deadline == null ? Long.MAX_VALUE : deadline.remainingMillis();
+    }
+
+    private static String text(String value) {
+        return hasText(value) ? value : "";
+    }
+}
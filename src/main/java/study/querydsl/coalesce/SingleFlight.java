@@ -0,0 +1,96 @@
+package study.querydsl.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 같은 key 로 동시에 들어온 호출은 먼저 온 하나(leader)만 실행하고, 나머지는 그 결과를 같이 받는다.
+ * 실행이 끝나면 바로 지우므로 캐시가 아니다. 끝난 뒤에 온 호출은 다시 실행한다.
+ *
+ * leader 가 실패하면 기다리던 호출도 같은 예외를 받는다. 단 retryOnFailure 에 해당하는 실패(leader 자신의 타임아웃 등)는
+ * 기다리던 호출이 다시 실행한다. 기다리는 시간은 maxWaitMillis 로 호출마다 따로 제한한다.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter shared;
+    private final Predicate<Throwable> retryOnFailure;
+    private final LongSupplier maxWaitMillis;
+
+    public SingleFlight(Counter shared, Predicate<Throwable> retryOnFailure, LongSupplier maxWaitMillis) {
+        this.shared = shared;
+        this.retryOnFailure = retryOnFailure;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        while (true) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+            if (leader == null) {
+                return lead(key, flight, call);
+            }
+            try {
+                V result = await(leader);
+                shared.increment();
+                return result;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (!retryOnFailure.test(cause)) {
+                    throw rethrow(cause);
+                }
+            }
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V lead(K key, CompletableFuture<V> flight, Supplier<V> call) {
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight); // 끝나면 바로 지운다. 다음 호출은 새로 실행한다.
+        }
+    }
+
+    private V await(CompletableFuture<V> leader) throws ExecutionException {
+        long waitMillis = maxWaitMillis.getAsLong();
+        try {
+            if (waitMillis == Long.MAX_VALUE) {
+                return leader.get();
+            }
+            if (waitMillis <= 0) {
+                throw new QueryTimeoutException("deadline exceeded before joining a shared query");
+            }
+            return leader.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("deadline exceeded while waiting for a shared query");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a shared query", e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (RuntimeException) cause; // lead() 는 RuntimeException, Error 만 넘긴다.
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import study.querydsl.bloom.UsernameBloomFilter;
+import study.querydsl.changelog.ChangeLogPoller;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * fast 프로파일(application-fast.yml)은 spring.main.lazy-initialization 으로 빈 생성을 첫 사용 시점으로 미룬다.
+ * 여기서 미루면 안 되는 빈만 제외한다.
+ */
+@Configuration
+@Profile("fast")
+public class FastStartConfig {
+
+    /**
+     * EntityManagerFactory 까지 미루면 스키마 검증(ddl-auto: validate) 실패가 기동 때가 아니라 첫 요청 때 드러나고,
+     * Hibernate 부트스트랩 비용도 첫 요청이 떠안는다.
+     * 대신 repositories.bootstrap-mode: deferred 로 다른 빈 생성과 병렬로 만든다.
+     * UsernameBloomFilter 는 기동 직후 만들어 둬야 첫 조회부터 "없음" 을 바로 답할 수 있다.
+     * ChangeLogPoller 는 아무도 주입받지 않으므로 미루면 다른 노드의 변경을 영영 읽지 않는다.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(EntityManagerFactory.class, UsernameBloomFilter.class,
+                ChangeLogPoller.class);
+    }
+}
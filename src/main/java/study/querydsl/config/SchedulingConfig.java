@@ -0,0 +1,10 @@
+package study.querydsl.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/** @Scheduled 사용 (UsernameBloomFilter rebuild 등). 스레드 수는 spring.task.scheduling.pool.size */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,32 @@
+package study.querydsl.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.controller.MemberTeamColumnarConverter;
+import study.querydsl.dto.MemberField;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    /** MemberTeamDto 의 @JsonFilter 는 fields= 요청에서만 바꾸고, 평소에는 모든 속성을 쓴다. (static: ObjectMapper 보다 먼저 필요) */
+    @Bean
+    public static Jackson2ObjectMapperBuilderCustomizer memberFieldsJsonFilter() {
+        return builder -> builder.filters(MemberField.defaultJsonFilters());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // 맨 뒤에 추가한다. Accept: */* 일 때는 기존처럼 Jackson(application/json)이 먼저 선택된다.
+        converters.add(new MemberTeamColumnarConverter(objectMapper.getFactory()));
+    }
+}
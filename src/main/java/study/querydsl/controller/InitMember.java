@@ -1,7 +1,10 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
@@ -11,7 +14,7 @@ import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
-@Profile("local") // application.yml: 스프링 부트 실행 시, local이라는 이름의 프로파일로 실행된다.
+@Profile("local & !fast") // application.yml: 스프링 부트 실행 시, local이라는 이름의 프로파일로 실행된다.
 @Component
 @RequiredArgsConstructor
 public class InitMember { // 로컬에서 톰캣실행해서 동작할 때 데이터 넣고싶은 것 작성.
@@ -24,6 +27,31 @@ public class InitMember { // 로컬에서 톰캣실행해서 동작할 때 데
         // @PostConstruct 와 @Transactional 은 분리 해줘야 한다!
     }
 
+    /**
+     * fast 프로파일: 기동 경로에서 빼고, 요청을 받을 준비가 된 뒤(ApplicationReadyEvent)에 백그라운드에서 넣는다.
+     * ddl-auto: validate 라서 이전 실행의 데이터가 남아 있으면 넣지 않는다.
+     */
+    @Slf4j
+    @Profile("local & fast")
+    @Component
+    @RequiredArgsConstructor
+    static class BackgroundInitMember {
+
+        private final InitMemberService initMemberService;
+
+        @EventListener(ApplicationReadyEvent.class)
+        public void init(){
+            Thread thread = new Thread(() -> {
+                long start = System.nanoTime();
+                if (initMemberService.initIfEmpty()) {
+                    log.info("background seeding done in {} ms", (System.nanoTime() - start) / 1_000_000);
+                }
+            }, "init-member");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
     @Component
     static class InitMemberService{
         @PersistenceContext
@@ -41,5 +69,17 @@ public class InitMember { // 로컬에서 톰캣실행해서 동작할 때 데
                 em.persist(new Member("member" + i, i, selectedTeam));
             }
         }
+
+        @Transactional
+        public boolean initIfEmpty(){
+            boolean empty = em.createQuery("select m.id from Member m")
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
+            if (empty) {
+                init();
+            }
+            return empty;
+        }
     }
 }
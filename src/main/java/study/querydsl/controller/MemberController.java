@@ -3,36 +3,150 @@ package study.querydsl.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import study.querydsl.bulkhead.QueryBulkhead;
+import study.querydsl.bulkhead.QueryClassifier;
+import study.querydsl.changelog.MemberChangeFeed;
+import study.querydsl.dto.MemberBatchRequest;
+import study.querydsl.dto.MemberBatchResult;
+import study.querydsl.dto.MemberDeltaDto;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberIngestResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.ingest.IngestFormat;
+import study.querydsl.ingest.MemberBulkIngestService;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController { /** 조회 API 컨트롤러 개발: API호출해서 데이터 조회만  */
 
+    private static final int MAX_BATCH_IDS = 10_000;
+    private static final int MAX_DELTA_LIMIT = 10_000;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final QueryClassifier queryClassifier;
+    private final QueryBulkhead queryBulkhead; // 검색은 MemberSearchCoalescer 가, id 배치 조회와 delta 는 여기서 건다.
+    private final MemberSearchETag memberSearchETag;
+    private final MemberChangeFeed memberChangeFeed;
+    private final MemberBulkIngestService memberBulkIngestService;
 
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
-        return memberJpaRepository.search(condition);
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition,
+                                              @RequestParam(required = false) String fields){
+        Set<MemberField> selected = parseFields(fields);
+        return memberJpaRepository.search(condition, selected); // QueryBulkhead 는 MemberSearchCoalescer 가 건다.
         // http://localhost:8080/v1/members/?teamName=teamB&ageGoe=21 포스트맨에서 테스트해보기
+        // http://localhost:8080/v1/members/?fields=memberId,username  -> team 조인 없이 두 컬럼만 조회
     }
 
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(required = false) String fields,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                              WebRequest webRequest, HttpServletResponse response){
+        Set<MemberField> selected = parseFields(fields);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT); // 304 에도 붙도록 먼저
+        // If-None-Match 가 같으면 304. 쿼리를 하나도 실행하지 않는다.
+        if (webRequest.checkNotModified(memberSearchETag.of("v2", accept, condition, selected, pageable))) {
+            return null;
+        }
+        return memberRepository.searchPageSimple(condition, pageable, selected);
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(required = false) String fields,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                              WebRequest webRequest, HttpServletResponse response){
+        Set<MemberField> selected = parseFields(fields);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (webRequest.checkNotModified(memberSearchETag.of("v3", accept, condition, selected, pageable))) {
+            return null;
+        }
+        return memberRepository.searchPageComplex(condition, pageable, selected);
+    }
+
+    /** 여러 id 를 한 번에 조회. findById 를 id 마다 호출하지 않도록 */
+    @PostMapping("/members/batch")
+    public List<MemberBatchResult> searchMembersByIds(@RequestBody MemberBatchRequest request){
+        List<Long> ids = request.getIds();
+        if (ids == null || ids.contains(null)) { // {"ids": null}, {"ids": [1, null]}
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must be a list of member ids");
+        }
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "too many ids: " + ids.size());
+        }
+        return queryBulkhead.execute(queryClassifier.classifyBatch(ids.size()),
+                () -> memberRepository.searchByIds(ids, request.isWithTeam()));
+    }
+
+    /**
+     * 회원 대량 등록. NDJSON(application/x-ndjson) 또는 CSV(text/csv) 본문을 스트림으로 읽어서
+     * 배치마다 따로 커밋한다. 실패한 배치와 건너뛴 줄은 응답의 errors 로 알려주고 나머지는 계속 넣는다.
+     */
+    @PostMapping(value = "/members/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    public MemberIngestResult bulkIngest(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                         InputStream body) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        Charset charset = mediaType.getCharset() == null ? StandardCharsets.UTF_8 : mediaType.getCharset();
+        return memberBulkIngestService.ingest(body, IngestFormat.of(mediaType), charset);
+        // curl -X POST -H 'Content-Type: text/csv' --data-binary @members.csv http://localhost:8080/members/bulk
     }
 
+    /**
+     * since(row_version) 이후에 바뀐 회원과 지워진 회원 id. 전체 목록을 다시 받지 않고 변경분만 동기화한다.
+     * 처음에는 since=0 으로 전체를 받고, 이후에는 응답의 version 을 since 로 보낸다.
+     */
+    @GetMapping("/v1/members/delta")
+    public MemberDeltaDto memberDelta(@RequestParam(defaultValue = "0") long since,
+                                      @RequestParam(defaultValue = "1000") int limit){
+        if (limit < 1 || limit > MAX_DELTA_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_DELTA_LIMIT);
+        }
+        // limit 이 크면 id 배치 조회와 같이 HEAVY 로 본다.
+        return queryBulkhead.execute(queryClassifier.classifyBatch(limit), () -> memberRepository.searchDelta(since, limit));
+        // http://localhost:8080/v1/members/delta?since=0
+    }
+
+    /**
+     * 조건에 맞는 회원의 변경을 SSE 로 받는다. 폴링 대신.
+     * 끊겼다가 다시 연결하면 EventSource 가 Last-Event-ID 를 보내고, 그 뒤의 변경부터 이어서 받는다.
+     */
+    @GetMapping(value = "/v1/members/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter memberChanges(MemberSearchCondition condition,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId){
+        return memberChangeFeed.subscribe(condition, lastEventId);
+        // curl -N "http://localhost:8080/v1/members/changes?teamName=teamA"
+    }
+
+    private Set<MemberField> parseFields(String fields) {
+        try {
+            return MemberField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
 }
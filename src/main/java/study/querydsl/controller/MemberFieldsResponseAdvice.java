@@ -0,0 +1,33 @@
+package study.querydsl.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import study.querydsl.dto.MemberField;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * fields= 로 일부 컬럼만 요청한 응답은 그 컬럼만 JSON 에 쓴다. fields= 가 없으면 응답 모양은 그대로다.
+ * Jackson 컨버터로 쓰는 응답에만 적용된다. (컬럼 형식 MemberTeamColumnarConverter 는 따로 처리)
+ */
+@RestControllerAdvice(assignableTypes = MemberController.class)
+public class MemberFieldsResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType, MethodParameter returnType,
+                                           ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest)) {
+            return;
+        }
+        String fields = ((ServletServerHttpRequest) request).getServletRequest().getParameter("fields");
+        if (hasText(fields)) {
+            bodyContainer.setFilters(MemberField.jsonFilters(MemberField.parse(fields))); // 잘못된 이름은 컨트롤러에서 이미 400
+        }
+    }
+}
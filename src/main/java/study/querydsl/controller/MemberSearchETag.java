@@ -0,0 +1,72 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.DataVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 조회 API 의 ETag. 테이블 버전 + Accept + 정규화한 조건 + 조회 컬럼 + 페이지 정보로 만든다.
+ * 쿼리를 실행하지 않고 계산할 수 있어서, If-None-Match 가 맞으면 content/count 쿼리 둘 다 건너뛴다.
+ * Accept 에 따라 표현이 달라질 수 있으므로 키에 넣고, 응답에는 Vary: Accept 를 붙인다. (MemberController)
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberSearchETag {
+
+    private final DataVersion dataVersion;
+
+    public String of(String endpoint, String accept, MemberSearchCondition condition, Set<MemberField> fields, Pageable pageable) {
+        String key = endpoint
+                + '|' + dataVersion.current()
+                + '|' + normalize(accept)
+                + '|' + normalize(condition)
+                + '|' + fields // EnumSet 이라 순서가 항상 같다.
+                + '|' + normalize(pageable);
+        // 정렬이 보장되지 않으므로 weak ETag 로 내보낸다.
+        return "W/\"" + DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    // null 과 빈 문자열은 같은 조건이다. (where 절에서 둘 다 무시된다)
+    private String normalize(MemberSearchCondition condition) {
+        return text(condition.getUsername()) + ','
+                + text(condition.getTeamName()) + ','
+                + condition.getAgeGoe() + ','
+                + condition.getAgeLoe();
+    }
+
+    // 없으면 */* 와 같다. 순서만 다른 Accept 는 협상 결과가 같으므로 우선순위대로 정렬해서 쓴다.
+    private String normalize(String accept) {
+        if (!hasText(accept)) {
+            return MediaType.ALL_VALUE;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            return mediaTypes.toString();
+        } catch (IllegalArgumentException e) {
+            return accept; // 파싱 못 하면 그대로 (어차피 406)
+        }
+    }
+
+    private String normalize(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return "unpaged";
+        }
+        return pageable.getPageNumber() + "," + pageable.getPageSize() + "," + pageable.getSort();
+    }
+
+    private String text(String value) {
+        return hasText(value) ? value : "";
+    }
+}
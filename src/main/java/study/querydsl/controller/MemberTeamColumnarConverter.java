@@ -0,0 +1,157 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * List<MemberTeamDto> 를 컬럼 단위 JSON 으로 쓴다. Accept 에 MEDIA_TYPE 을 직접 지정한 경우에만 사용된다.
+ *
+ * {"size":3,
+ *  "teams":{"teamId":[1,2],"teamName":["teamA","teamB"]},  <- 팀은 사전으로 한 번만
+ *  "memberId":[3,4,5], "username":[...], "age":[...],
+ *  "team":[0,1,-1]}                                          <- teams 의 인덱스, -1 은 팀 없음
+ *
+ * 행마다 Map 을 만들지 않고 JsonGenerator 로 바로 쓴다.
+ * +json 접미사를 붙이면 Jackson 컨버터가 application/*+json 으로 가로채므로 붙이지 않는다.
+ */
+public class MemberTeamColumnarConverter extends AbstractGenericHttpMessageConverter<List<MemberTeamDto>> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.study.member.columnar";
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+
+    private static final ResolvableType MEMBER_TEAM_LIST = ResolvableType.forClassWithGenerics(List.class, MemberTeamDto.class);
+
+    private final JsonFactory jsonFactory;
+
+    public MemberTeamColumnarConverter(JsonFactory jsonFactory) {
+        super(MEDIA_TYPE);
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return type != null
+                && MEMBER_TEAM_LIST.isAssignableFrom(ResolvableType.forType(type))
+                && canWrite(mediaType);
+    }
+
+    @Override
+    public List<MemberTeamDto> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("columnar format is write-only", inputMessage);
+    }
+
+    @Override
+    protected List<MemberTeamDto> readInternal(Class<? extends List<MemberTeamDto>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("columnar format is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(List<MemberTeamDto> members, Type type, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(
+                StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+            write(members, generator);
+        }
+    }
+
+    private void write(List<MemberTeamDto> members, JsonGenerator generator) throws IOException {
+        // 1) 팀 사전 만들기: (teamId, teamName) -> 인덱스
+        // fields= 로 teamId 나 teamName 한쪽만 골랐으면 다른 쪽은 null 이므로 둘을 같이 키로 쓴다.
+        Map<List<Object>, Integer> teamIndex = new HashMap<>();
+        List<MemberTeamDto> teamRows = new ArrayList<>(); // 팀별 첫 행 (teamId, teamName 을 꺼내 쓴다)
+        int[] teamRefs = new int[members.size()];
+        for (int i = 0; i < members.size(); i++) {
+            MemberTeamDto row = members.get(i);
+            if (row.getTeamId() == null && row.getTeamName() == null) {
+                teamRefs[i] = -1;
+                continue;
+            }
+            List<Object> key = Arrays.asList(row.getTeamId(), row.getTeamName());
+            Integer index = teamIndex.get(key);
+            if (index == null) {
+                index = teamRows.size();
+                teamIndex.put(key, index);
+                teamRows.add(row);
+            }
+            teamRefs[i] = index;
+        }
+
+        // 2) 컬럼 단위로 쓰기
+        generator.writeStartObject();
+        generator.writeNumberField("size", members.size());
+
+        generator.writeObjectFieldStart("teams");
+        generator.writeArrayFieldStart("teamId");
+        for (MemberTeamDto row : teamRows) {
+            writeNumber(generator, row.getTeamId());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("teamName");
+        for (MemberTeamDto row : teamRows) {
+            generator.writeString(row.getTeamName());
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart("memberId");
+        for (MemberTeamDto row : members) {
+            writeNumber(generator, row.getMemberId());
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("username");
+        for (MemberTeamDto row : members) {
+            generator.writeString(row.getUsername());
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("age");
+        for (MemberTeamDto row : members) {
+            writeNumber(generator, row.getAge());
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("team");
+        for (int teamRef : teamRefs) {
+            generator.writeNumber(teamRef);
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+    }
+
+    // fields= 로 빠진 컬럼은 null 로 채워진다.
+    private void writeNumber(JsonGenerator generator, Number value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+}
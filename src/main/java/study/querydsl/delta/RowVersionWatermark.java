@@ -0,0 +1,72 @@
+package study.querydsl.delta;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * delta 조회가 내줄 수 있는 row_version 상한.
+ *
+ * row_version 은 쓸 때 시퀀스에서 받고 커밋은 나중이므로, 겹치는 쓰기 트랜잭션은 version 순서와 다르게 커밋될 수 있다.
+ * 그래서 gap-grace 전에 본 시퀀스 값까지만 내준다. 그때 이미 version 을 받은 트랜잭션은 gap-grace 안에 커밋됐다고 본다.
+ * (ChangeLogPoller 의 gap-grace 와 같은 가정. 그보다 오래 열려 있는 쓰기 트랜잭션의 변경은 놓칠 수 있다)
+ */
+@Component
+public class RowVersionWatermark {
+
+    private static final String CURRENT_VALUE_SQL =
+            "select current_value from information_schema.sequences where sequence_name = 'ROW_VERSION_SEQ'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long gapGraceMillis;
+    private final Deque<long[]> samples = new ArrayDeque<>(); // {본 시각, 시퀀스 값}. 오래된 것부터
+
+    public RowVersionWatermark(JdbcTemplate jdbcTemplate,
+                               @Value("${study.delta.gap-grace-ms:${study.change-log.gap-grace-ms:5000}}") long gapGraceMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gapGraceMillis = gapGraceMillis;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${study.delta.sample-interval-ms:200}")
+    public void sample() {
+        long version = currentVersion();
+        long now = System.currentTimeMillis();
+        synchronized (samples) {
+            samples.addLast(new long[]{now, version});
+            oldestSafe(now);
+        }
+    }
+
+    /** 이 값 이하의 row_version 은 모두 커밋됐다고 본다. 기동 직후 gap-grace 동안은 0 */
+    public long safeVersion() {
+        if (gapGraceMillis <= 0) {
+            return currentVersion();
+        }
+        synchronized (samples) {
+            long[] safe = oldestSafe(System.currentTimeMillis());
+            return safe == null ? 0 : safe[1];
+        }
+    }
+
+    /** gap-grace 가 지난 샘플 중 마지막 것. 그보다 오래된 샘플은 버린다. */
+    private long[] oldestSafe(long now) {
+        long cutoff = now - gapGraceMillis;
+        long[] safe = null;
+        while (!samples.isEmpty() && samples.peekFirst()[0] <= cutoff) {
+            safe = samples.pollFirst();
+        }
+        if (safe != null) {
+            samples.addFirst(safe);
+        }
+        return safe;
+    }
+
+    private long currentVersion() {
+        Long version = jdbcTemplate.queryForObject(CURRENT_VALUE_SQL, Long.class);
+        return version == null ? 0 : version;
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.delta;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityType;
+
+/**
+ * 팀이 바뀌면(이름 변경) 소속 회원의 row_version 도 올린다. delta 조회는 member 의 row_version 만 읽으면 되고,
+ * 회원이 많은 팀이 바뀌어도 limit 씩 나눠서 내줄 수 있다. EntityChangePublisher 가 부르므로 팀 변경과 같은 트랜잭션.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamChangePropagator {
+
+    private static final String BUMP_SQL =
+            "update member set row_version = next value for row_version_seq where team_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void record(EntityChangeEvent event) {
+        if (event.getEntityType() != EntityType.TEAM || event.getChangeType() != ChangeType.UPDATE || event.isRemote()) {
+            return;
+        }
+        jdbcTemplate.update(BUMP_SQL, event.getId());
+    }
+}
@@ -0,0 +1,41 @@
+package study.querydsl.delta;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * retention 보다 오래된 tombstone 을 지운다. 여러 노드가 같이 지워도 상관없다.
+ *
+ * 만료된 것 중 가장 최근 것 하나는 남겨 둔다. 남은 tombstone 의 최소 row_version 이 "여기 전까지는 지워졌다" 는 경계가 되고,
+ * since 가 그보다 작은 클라이언트에게는 delta 대신 resync 를 보낸다. (MemberRepositoryImpl.searchDelta)
+ */
+@Slf4j
+@Component
+public class TombstonePurger {
+
+    private static final String PURGE_SQL = "delete from tombstone where deleted_at < ?"
+            + " and id < (select max(id) from tombstone where deleted_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retentionMillis;
+
+    public TombstonePurger(JdbcTemplate jdbcTemplate,
+                           @Value("${study.delta.tombstone-retention-minutes:1440}") long retentionMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+    }
+
+    @Scheduled(fixedDelayString = "${study.delta.purge-interval-ms:60000}")
+    public void purge() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        int deleted = jdbcTemplate.update(PURGE_SQL, cutoff, cutoff);
+        if (deleted > 0) {
+            log.debug("purged {} tombstone rows", deleted);
+        }
+    }
+}
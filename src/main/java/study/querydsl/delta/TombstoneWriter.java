@@ -0,0 +1,29 @@
+package study.querydsl.delta;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeEvent;
+
+/**
+ * 삭제 이벤트를 tombstone 에 남긴다. EntityChangePublisher 가 부르므로 삭제와 같은 트랜잭션에서 커밋/롤백된다.
+ * retention 이 지난 기록은 TombstonePurger 가 지운다.
+ * 주의: 벌크 delete(execute())는 이벤트가 없으므로 기록되지 않는다. delta 로 동기화하는 데이터는 벌크로 지우지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TombstoneWriter {
+
+    private static final String INSERT_SQL =
+            "insert into tombstone (entity_type, entity_id, deleted_at) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void record(EntityChangeEvent event) {
+        if (event.getChangeType() != ChangeType.DELETE || event.isRemote()) {
+            return; // 다른 노드의 삭제는 그 노드가 이미 남겼다.
+        }
+        jdbcTemplate.update(INSERT_SQL, event.getEntityType().name(), event.getId(), System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** 윈도우 함수 조회 결과. 회원 한 명 + 그 회원이 속한 구간(전체 또는 팀)의 집계값 */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MemberAgeStatDto {
+
+    private Long memberId;
+    private String username;
+    private Integer age;
+    private Long teamId;
+    private Double averageAge; // avg(age) over (...)
+    private Integer maxAge;    // max(age) over (...)
+    private Long ageRank;      // row_number() over (... order by age desc)
+}
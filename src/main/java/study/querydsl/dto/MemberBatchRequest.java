@@ -0,0 +1,15 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class MemberBatchRequest {
+
+    private List<Long> ids = new ArrayList<>();
+    private boolean withTeam; // true 면 team 을 조인해서 teamName 까지 채운다.
+}
@@ -0,0 +1,30 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.ToString;
+
+/** 여러 id 조회 결과. 요청한 순서 그대로 돌려주고, 없는 id 는 found=false 로 표시한다. */
+@Getter
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MemberBatchResult {
+
+    private final Long id;
+    private final boolean found;
+    private final MemberTeamDto member;
+
+    private MemberBatchResult(Long id, boolean found, MemberTeamDto member) {
+        this.id = id;
+        this.found = found;
+        this.member = member;
+    }
+
+    public static MemberBatchResult found(MemberTeamDto member) {
+        return new MemberBatchResult(member.getMemberId(), true, member);
+    }
+
+    public static MemberBatchResult missing(Long id) {
+        return new MemberBatchResult(id, false, null);
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * /v1/members/changes 로 보내는 변경 하나.
+ * - UPSERT: 조건에 맞는 회원이 추가/수정됨. member 에 현재 값
+ * - REMOVE: 회원이 삭제됐거나 더 이상 조건에 맞지 않음. 가지고 있지 않은 memberId 면 무시하면 된다.
+ * - TEAM  : 팀 이름이 바뀌거나 팀이 삭제됨. 가지고 있는 teamName 을 바꾸면 된다. (삭제면 teamName 없음)
+ * - RESYNC: 변경분만으로는 맞출 수 없다. 검색을 다시 해야 한다. (teamName 조건인데 팀이 바뀜, 보관 기간이 지난 Last-Event-ID)
+ */
+@Getter
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MemberChangeDto {
+
+    public enum Type { UPSERT, REMOVE, TEAM, RESYNC }
+
+    private final Type type;
+    private final Long memberId;
+    private final MemberTeamDto member;
+    private final Long teamId;
+    private final String teamName;
+
+    private MemberChangeDto(Type type, Long memberId, MemberTeamDto member, Long teamId, String teamName) {
+        this.type = type;
+        this.memberId = memberId;
+        this.member = member;
+        this.teamId = teamId;
+        this.teamName = teamName;
+    }
+
+    public static MemberChangeDto upsert(MemberTeamDto member) {
+        return new MemberChangeDto(Type.UPSERT, member.getMemberId(), member, null, null);
+    }
+
+    public static MemberChangeDto remove(Long memberId) {
+        return new MemberChangeDto(Type.REMOVE, memberId, null, null, null);
+    }
+
+    public static MemberChangeDto team(Long teamId, String teamName) {
+        return new MemberChangeDto(Type.TEAM, null, null, teamId, teamName);
+    }
+
+    public static MemberChangeDto resync() {
+        return new MemberChangeDto(Type.RESYNC, null, null, null, null);
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * since 이후에 바뀐 회원. 클라이언트는 changed 를 덮어쓰고 deleted 를 지운 뒤, 다음 요청의 since 로 version 을 보낸다.
+ * hasMore 면 바로 이어서 다시 요청한다.
+ * resync 면 since 이후의 삭제 기록이 이미 지워졌으므로(tombstone retention) 가진 목록을 버리고 since=0 부터 다시 받는다.
+ */
+@Getter
+@ToString
+public class MemberDeltaDto {
+
+    private final long version;
+    private final List<MemberTeamDto> changed;
+    private final List<Long> deleted;
+    private final boolean hasMore;
+    private final boolean resync;
+
+    public MemberDeltaDto(long version, List<MemberTeamDto> changed, List<Long> deleted, boolean hasMore) {
+        this(version, changed, deleted, hasMore, false);
+    }
+
+    private MemberDeltaDto(long version, List<MemberTeamDto> changed, List<Long> deleted, boolean hasMore, boolean resync) {
+        this.version = version;
+        this.changed = changed;
+        this.deleted = deleted;
+        this.hasMore = hasMore;
+        this.resync = resync;
+    }
+
+    public static MemberDeltaDto resync() {
+        return new MemberDeltaDto(0, List.of(), List.of(), false, true);
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import study.querydsl.projection.GeneratedProjection;
 
 //@Getter @Setter
 @ToString
@@ -15,6 +16,7 @@ public class MemberDto {
     private int age;
 
     @QueryProjection
+    @GeneratedProjection // MemberDtoProjection
     public MemberDto(String username, int age) {
         this.username = username;
         this.age = age;
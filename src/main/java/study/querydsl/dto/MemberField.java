@@ -0,0 +1,70 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/** 조회 API 의 fields= 파라미터. 요청한 컬럼만 select 한다. */
+public enum MemberField {
+    MEMBER_ID("memberId"),
+    USERNAME("username"),
+    AGE("age"),
+    TEAM_ID("teamId"),
+    TEAM_NAME("teamName");
+
+    public static final Set<MemberField> ALL = Collections.unmodifiableSet(EnumSet.allOf(MemberField.class));
+
+    /** MemberTeamDto 의 @JsonFilter id */
+    public static final String JSON_FILTER = "memberFields";
+
+    private final String property;
+
+    MemberField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /** "memberId,username" -> [MEMBER_ID, USERNAME]. 비어 있으면 전체 컬럼. */
+    public static Set<MemberField> parse(String fields) {
+        if (!hasText(fields)) {
+            return ALL;
+        }
+        Set<MemberField> result = EnumSet.noneOf(MemberField.class);
+        for (String name : fields.split(",")) {
+            if (hasText(name)) {
+                result.add(of(name.trim()));
+            }
+        }
+        return result.isEmpty() ? ALL : result;
+    }
+
+    /** 그 외 응답은 모든 속성을 쓴다. ObjectMapper 기본값으로 등록한다. (WebConfig) */
+    public static SimpleFilterProvider defaultJsonFilters() {
+        return new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+    }
+
+    /** 선택한 컬럼만 쓴다. 선택한 컬럼의 값이 null 이면(팀 없는 회원의 teamId) null 로 쓴다. */
+    public static FilterProvider jsonFilters(Set<MemberField> fields) {
+        Set<String> properties = fields.stream().map(MemberField::getProperty).collect(Collectors.toSet());
+        return defaultJsonFilters().addFilter(JSON_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(properties));
+    }
+
+    private static MemberField of(String property) {
+        for (MemberField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("unknown field: " + property);
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * /members/bulk 결과. 실패한 배치와 건너뛴 줄이 있어도 나머지는 들어간다.
+ * errors 는 앞에서부터 최대 study.bulk-ingest.max-errors 개. 넘으면 errorsTruncated.
+ */
+@Getter
+@ToString
+public class MemberIngestResult {
+
+    private final long received;      // 읽은 줄 수 (빈 줄, CSV 헤더 제외)
+    private final long inserted;
+    private final long rejected;      // 형식이 잘못됐거나 팀이 없어서 건너뛴 줄
+    private final long failedRows;    // 실패한 배치에 들어 있던 줄
+    private final int batches;
+    private final int failedBatches;
+    private final long elapsedMs;
+    private final long rowsPerSecond; // inserted 기준
+    private final List<IngestError> errors;
+    private final boolean errorsTruncated;
+
+    public MemberIngestResult(long received, long inserted, long rejected, long failedRows, int batches, int failedBatches,
+                              long elapsedMs, List<IngestError> errors, boolean errorsTruncated) {
+        this.received = received;
+        this.inserted = inserted;
+        this.rejected = rejected;
+        this.failedRows = failedRows;
+        this.batches = batches;
+        this.failedBatches = failedBatches;
+        this.elapsedMs = elapsedMs;
+        this.rowsPerSecond = elapsedMs == 0 ? inserted * 1000 : inserted * 1000 / elapsedMs;
+        this.errors = errors;
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    /** batch 가 null 이면 줄 하나를 건너뛴 것, 아니면 fromLine ~ toLine 배치 전체가 롤백된 것 */
+    @Getter
+    @ToString
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class IngestError {
+
+        private final Integer batch;
+        private final long fromLine;
+        private final long toLine;
+        private final String message;
+
+        private IngestError(Integer batch, long fromLine, long toLine, String message) {
+            this.batch = batch;
+            this.fromLine = fromLine;
+            this.toLine = toLine;
+            this.message = message;
+        }
+
+        public static IngestError row(long line, String message) {
+            return new IngestError(null, line, line, message);
+        }
+
+        public static IngestError batch(int batch, long fromLine, long toLine, String message) {
+            return new IngestError(batch, fromLine, toLine, message);
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package study.querydsl.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor // fields= 로 일부 컬럼만 조회할 때 Projections.bean 이 사용한다.
+@JsonFilter(MemberField.JSON_FILTER) // fields= 가 있을 때만 요청한 컬럼만 쓴다. (MemberFieldsResponseAdvice)
 public class MemberTeamDto {
 
     private Long memberId;
     private String username;
-    private int age;
+    private Integer age;
     private Long teamId;
     private String teamName;
 
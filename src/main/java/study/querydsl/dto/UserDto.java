@@ -4,6 +4,7 @@ package study.querydsl.dto;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import study.querydsl.projection.GeneratedProjection;
 
 @Getter @Setter
 @NoArgsConstructor
@@ -12,6 +13,7 @@ public class UserDto {
     private String name;
     private int age;
 
+    @GeneratedProjection // UserDtoProjection: 리플렉션 없이 생성자 호출
     public UserDto(String name, int age) {
         this.name = name;
         this.age = age;
@@ -0,0 +1,51 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityType;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Member/Team 변경 기록. 쓰기와 같은 트랜잭션에서 ChangeLogWriter 가 JDBC 로 넣고,
+ * 다른 노드의 ChangeLogPoller 가 id 순서로 읽어서 캐시를 무효화한다.
+ * 엔티티로 매핑한 것은 스키마 생성/검증(ddl-auto)에 포함시키기 위해서다. JPA 로 저장하지는 않는다.
+ */
+@Entity
+@Table(name = "change_log")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ChangeLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // insert 순서대로 증가. 커밋 순서와는 다를 수 있다. (ChangeLogPoller 참고)
+    private Long id;
+
+    @Column(name = "node_id", length = 64)
+    private String nodeId; // 쓴 노드. 자기 노드의 기록은 이미 반영했으므로 건너뛴다.
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", length = 16)
+    private EntityType entityType;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", length = 16)
+    private ChangeType changeType;
+
+    private String name; // Member.username / Team.name (캐시 키)
+
+    @Column(name = "created_at")
+    private long createdAt; // epoch millis
+}
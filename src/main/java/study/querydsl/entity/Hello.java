@@ -2,15 +2,21 @@ package study.querydsl.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
 @Entity
 @Getter @Setter
 public class Hello {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hello_seq")
+    @GenericGenerator(name = "hello_seq", strategy = "study.querydsl.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "hello_seq"))
     private Long id;
 }
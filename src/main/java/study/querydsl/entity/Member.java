@@ -1,21 +1,40 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.event.EntityChangeListener;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_row_version", columnList = "row_version"), // delta 조회 (row_version > ?)
+        @Index(name = "idx_member_username", columnList = "username, member_id"), // sort=username 페이징 (MemberSortTranslator)
+        @Index(name = "idx_member_age", columnList = "age, member_id")
+})
+@EntityListeners(EntityChangeListener.class) // 저장/수정/삭제 시 변경 이벤트 발행
 @Getter @Setter // 실무에서는 setter 사용 지양하기.
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // JPA는 기본생성자 필요함
 @ToString(of={"id", "username", "age"})
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+    @GenericGenerator(name = "member_seq", strategy = "study.querydsl.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "member_seq")) // id 를 구간(study.id.member_seq.allocation_size)으로 미리 받아서 insert 마다 시퀀스를 조회하지 않는다.
     @Column(name="member_id")
     private Long id;
     private String username;
     private int age;
 
+    /**
+     * 쓸 때마다 DB 가 row_version_seq 의 다음 값으로 채운다. (import.sql 의 default / on update)
+     * 벌크 update(execute()) 나 JDBC update 도 마찬가지. JPA 로 읽어 둔 값은 다시 조회하기 전까지 갱신되지 않는다.
+     */
+    @Column(name = "row_version", insertable = false, updatable = false)
+    private Long rowVersion;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id") // 외래키 컬럼 이름
     private Team team;
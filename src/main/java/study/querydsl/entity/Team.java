@@ -1,24 +1,40 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.event.EntityChangeListener;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_row_version", columnList = "row_version")) // delta 조회 (row_version > ?)
+@EntityListeners(EntityChangeListener.class) // 저장/수정/삭제 시 변경 이벤트 발행
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of={"id", "name"})
 public class Team {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq")
+    @GenericGenerator(name = "team_seq", strategy = "study.querydsl.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "team_seq"))
     private Long id;
     private String name;
 
+    @Column(name = "row_version", insertable = false, updatable = false) // Member.rowVersion 과 같은 시퀀스
+    private Long rowVersion;
+
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
@@ -0,0 +1,44 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import study.querydsl.event.EntityType;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * 삭제 기록. delta 조회(/v1/members/delta)가 지워진 id 를 알려주기 위해 남긴다.
+ * 삭제와 같은 트랜잭션에서 TombstoneWriter 가 JDBC 로 넣는다. row_version 은 Member/Team 과 같은 시퀀스.
+ */
+@Entity
+@Table(name = "tombstone", indexes = @Index(name = "idx_tombstone_row_version", columnList = "entity_type, row_version"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class Tombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", length = 16)
+    private EntityType entityType;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    @Column(name = "row_version", insertable = false, updatable = false)
+    private Long rowVersion;
+
+    @Column(name = "deleted_at")
+    private long deletedAt; // epoch millis
+}
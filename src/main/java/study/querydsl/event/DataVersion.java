@@ -0,0 +1,33 @@
+package study.querydsl.event;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member/Team 테이블 단위 버전. 쓰기가 커밋될 때마다 1씩 올라간다.
+ * 커밋 전에 올리면 다른 요청이 새 버전으로 옛날 데이터를 읽어갈 수 있으므로 커밋 후에 올린다.
+ * 재시작하면 0부터 다시 세므로 기동 시각(epoch)을 같이 붙여서 쓴다.
+ */
+@Component
+public class DataVersion {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChange(EntityChangeEvent event) {
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChanges(EntityChangeBatchEvent batch) {
+        version.incrementAndGet(); // 커밋 하나에 한 번이면 충분하다.
+    }
+
+    public String current() {
+        return epoch + "-" + version.get();
+    }
+}
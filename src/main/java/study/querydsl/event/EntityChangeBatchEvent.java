@@ -0,0 +1,25 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 벌크 쓰기의 변경 이벤트 묶음. (EntityChangePublisher.publishAll)
+ * 행마다 이벤트를 내면 리스너마다 트랜잭션 synchronization 이 행 수만큼 쌓이므로 배치 하나에 한 번만 낸다.
+ * EntityChangeEvent 리스너는 이 이벤트도 받아서 events 를 한 번에 처리해야 한다.
+ */
+@Getter
+public class EntityChangeBatchEvent {
+
+    private final List<EntityChangeEvent> events;
+
+    public EntityChangeBatchEvent(List<EntityChangeEvent> events) {
+        this.events = events;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChangeBatchEvent(" + events.size() + " events)";
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Member, Team 변경 이벤트.
+ * name 은 캐시 키로 쓰이는 값이다. (Member 는 username, Team 은 name)
+ * remote 는 다른 노드에서 일어난 변경을 change_log 에서 읽어 온 것이다. (다시 change_log 에 쓰지 않는다)
+ */
+@Getter
+@ToString
+public class EntityChangeEvent {
+
+    private final EntityType entityType;
+    private final Long id;
+    private final ChangeType changeType;
+    private final String name;
+    private final boolean remote;
+
+    public EntityChangeEvent(EntityType entityType, Long id, ChangeType changeType, String name) {
+        this(entityType, id, changeType, name, false);
+    }
+
+    public EntityChangeEvent(EntityType entityType, Long id, ChangeType changeType, String name, boolean remote) {
+        this.entityType = entityType;
+        this.id = id;
+        this.changeType = changeType;
+        this.name = name;
+        this.remote = remote;
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * 엔티티 리스너. 스프링 부트가 하이버네이트에 SpringBeanContainer 를 넣어주기 때문에 빈으로 주입받을 수 있다.
+ * 주의: 벌크 연산(execute())은 영속성 컨텍스트를 거치지 않으므로 여기로 오지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityChangeListener {
+
+    private final EntityChangePublisher publisher;
+
+    @PostPersist
+    public void postPersist(Object entity) {
+        publish(entity, ChangeType.INSERT);
+    }
+
+    @PostUpdate
+    public void postUpdate(Object entity) {
+        publish(entity, ChangeType.UPDATE);
+    }
+
+    @PostRemove
+    public void postRemove(Object entity) {
+        publish(entity, ChangeType.DELETE);
+    }
+
+    private void publish(Object entity, ChangeType changeType) {
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            publisher.publish(new EntityChangeEvent(EntityType.MEMBER, member.getId(), changeType, member.getUsername()));
+        } else if (entity instanceof Team) {
+            Team team = (Team) entity;
+            publisher.publish(new EntityChangeEvent(EntityType.TEAM, team.getId(), changeType, team.getName()));
+        }
+    }
+}
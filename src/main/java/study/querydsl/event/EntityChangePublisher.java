@@ -0,0 +1,41 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.changelog.ChangeLogWriter;
+import study.querydsl.delta.TeamChangePropagator;
+import study.querydsl.delta.TombstoneWriter;
+
+import java.util.List;
+
+/** 변경 이벤트를 내보내는 곳은 여기 하나로 모은다. JPA 리스너 외에 JDBC 로 직접 쓰는 코드도 여기를 호출한다. */
+@Component
+@RequiredArgsConstructor
+public class EntityChangePublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeLogWriter changeLogWriter; // 다른 노드에 알리기 위해 같은 트랜잭션에서 change_log 에도 남긴다.
+    private final TombstoneWriter tombstoneWriter; // 삭제는 delta 조회를 위해 tombstone 에도 남긴다.
+    private final TeamChangePropagator teamChangePropagator; // 팀 변경은 소속 회원의 row_version 도 올린다.
+
+    public void publish(EntityChangeEvent event) {
+        changeLogWriter.append(event);
+        tombstoneWriter.record(event);
+        teamChangePropagator.record(event);
+        eventPublisher.publishEvent(event);
+    }
+
+    /** 벌크 쓰기용. change_log 는 한 번에 넣고 이벤트도 EntityChangeBatchEvent 하나로 낸다. */
+    public void publishAll(List<EntityChangeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        changeLogWriter.appendAll(events);
+        for (EntityChangeEvent event : events) {
+            tombstoneWriter.record(event);
+            teamChangePropagator.record(event);
+        }
+        eventPublisher.publishEvent(new EntityChangeBatchEvent(events));
+    }
+}
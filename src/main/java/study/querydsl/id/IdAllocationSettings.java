@@ -0,0 +1,30 @@
+package study.querydsl.id;
+
+import java.util.Map;
+
+/**
+ * 시퀀스별 allocation size 설정 키.
+ * spring.jpa.properties.study.id.{시퀀스명}.allocation_size  (없으면 study.id.default_allocation_size, 그것도 없으면 50)
+ * spring.jpa.properties.* 는 하이버네이트 설정으로 그대로 넘어가므로 generator 에서도 같은 키를 읽는다.
+ */
+public final class IdAllocationSettings {
+
+    public static final String PREFIX = "study.id.";
+    public static final String DEFAULT_KEY = PREFIX + "default_allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private IdAllocationSettings() {
+    }
+
+    public static String key(String sequenceName) {
+        return PREFIX + sequenceName + ".allocation_size";
+    }
+
+    public static int allocationSize(Map<?, ?> settings, String sequenceName) {
+        Object value = settings.get(key(sequenceName));
+        if (value == null) {
+            value = settings.get(DEFAULT_KEY);
+        }
+        return value == null ? DEFAULT_ALLOCATION_SIZE : Integer.parseInt(value.toString().trim());
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.id;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JDBC 로 직접 insert 하는 코드용 id 할당기. 여러 스레드가 동시에 써도 된다.
+ * PooledSequenceGenerator 와 같은 pooled-lo 규칙을 쓰므로 JPA 로 저장한 id 와 겹치지 않는다.
+ *
+ * 평소에는 현재 구간의 AtomicLong 만 증가시키고(락 없음), 구간을 다 쓴 스레드만 락을 잡고 시퀀스를 호출한다.
+ */
+public class IdBlockAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequenceName;
+    private final int blockSize;
+    private final Object refillLock = new Object();
+
+    private volatile Block block = new Block(0, 0); // 처음에는 빈 구간
+
+    public IdBlockAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+    }
+
+    public long next() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                return id;
+            }
+            synchronized (refillLock) {
+                if (block == current) { // 다른 스레드가 먼저 채웠으면 그 구간을 쓴다.
+                    block = fetchBlock();
+                }
+            }
+        }
+    }
+
+    private Block fetchBlock() {
+        Long low = jdbcTemplate.queryForObject("select next value for " + sequenceName, Long.class);
+        return new Block(low, low + blockSize);
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long limit; // 미포함
+
+        Block(long low, long limit) {
+            this.next = new AtomicLong(low);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.id;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** 시퀀스별 IdBlockAllocator. 구간 크기는 하이버네이트 generator 와 같은 설정에서 읽는다. */
+@Component
+@RequiredArgsConstructor
+public class IdBlockAllocators {
+
+    private static final String JPA_PROPERTIES = "spring.jpa.properties.";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Environment environment;
+    private final Map<String, IdBlockAllocator> allocators = new ConcurrentHashMap<>();
+
+    public IdBlockAllocator forSequence(String sequenceName) {
+        return allocators.computeIfAbsent(sequenceName,
+                name -> new IdBlockAllocator(jdbcTemplate, name, allocationSize(name)));
+    }
+
+    public int allocationSize(String sequenceName) {
+        String value = environment.getProperty(JPA_PROPERTIES + IdAllocationSettings.key(sequenceName),
+                environment.getProperty(JPA_PROPERTIES + IdAllocationSettings.DEFAULT_KEY));
+        return value == null ? IdAllocationSettings.DEFAULT_ALLOCATION_SIZE : Integer.parseInt(value.trim());
+    }
+}
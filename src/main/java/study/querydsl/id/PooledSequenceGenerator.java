@@ -0,0 +1,30 @@
+package study.querydsl.id;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * pooled-lo 시퀀스 generator. allocation size 를 어노테이션 상수가 아니라 설정(IdAllocationSettings)으로 정한다.
+ *
+ * 시퀀스를 한 번 호출하면 [값, 값 + allocation size) 구간을 메모리에서 나눠 쓰므로,
+ * persist 할 때마다 시퀀스를 조회하지 않고 insert 를 JDBC batch 로 묶을 수 있다.
+ * JDBC 로 직접 insert 하는 코드는 같은 구간 규칙을 쓰는 IdBlockAllocator 로 id 를 받는다.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        String sequenceName = params.getProperty(SEQUENCE_PARAM);
+        int allocationSize = IdAllocationSettings.allocationSize(
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), sequenceName);
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        params.setProperty(OPT_PARAM, "pooled-lo"); // IdBlockAllocator 와 같은 구간 규칙
+        super.configure(type, params, serviceRegistry);
+    }
+}
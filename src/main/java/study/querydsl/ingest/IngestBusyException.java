@@ -0,0 +1,13 @@
+package study.querydsl.ingest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** 동시에 돌릴 수 있는 대량 등록 수(study.bulk-ingest.max-concurrent)를 넘었을 때. 기다리지 않고 바로 503. */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IngestBusyException extends RuntimeException {
+
+    public IngestBusyException(int maxConcurrent) {
+        super("too many bulk ingests in progress (max " + maxConcurrent + ")");
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.ingest;
+
+import org.springframework.http.MediaType;
+
+/** /members/bulk 가 받는 본문 형식. Content-Type 으로 고른다. */
+public enum IngestFormat {
+
+    NDJSON("application/x-ndjson"), // 한 줄에 {"username":..,"age":..,"teamName":..} 하나
+    CSV("text/csv");                // 첫 줄은 헤더 (username,age,teamName). 순서는 상관없다.
+
+    private final MediaType mediaType;
+
+    IngestFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public static IngestFormat of(MediaType contentType) {
+        for (IngestFormat format : values()) {
+            if (format.mediaType.includes(contentType)) {
+                return format;
+            }
+        }
+        throw new InvalidIngestFormatException("unsupported content type: " + contentType);
+    }
+}
@@ -0,0 +1,13 @@
+package study.querydsl.ingest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** 본문 전체를 읽을 수 없을 때. (지원하지 않는 형식, CSV 헤더 누락) 줄 단위 오류는 결과에 담고 계속 읽는다. */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidIngestFormatException extends RuntimeException {
+
+    public InvalidIngestFormatException(String message) {
+        super(message);
+    }
+}
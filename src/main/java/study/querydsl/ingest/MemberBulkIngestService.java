@@ -0,0 +1,256 @@
+package study.querydsl.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestResult;
+import study.querydsl.dto.MemberIngestResult.IngestError;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityChangePublisher;
+import study.querydsl.event.EntityType;
+import study.querydsl.id.IdBlockAllocator;
+import study.querydsl.id.IdBlockAllocators;
+import study.querydsl.repository.TeamNameResolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 대량 등록 (/members/bulk).
+ *
+ * 본문을 한 줄씩 읽어서 batch-size 만큼 모이면 그 배치만 트랜잭션 하나로 넣는다.
+ * - 영속성 컨텍스트를 거치지 않는다. id 는 IdBlockAllocator 로 받고, rows-per-statement 개씩 multi-row insert 한다.
+ * - teamName 은 TeamNameResolver 캐시로 id 로 바꾼다. 이름이 같은 팀이 여럿이면 id 가 가장 작은 팀. 없는 팀이면 그 줄만 건너뛴다.
+ * - 배치가 실패하면 그 배치만 롤백하고 다음 배치를 계속 읽는다. 앞에서 커밋된 배치는 남는다. (전부 아니면 전무가 아니다)
+ * - 변경 이벤트는 EntityChangePublisher.publishAll 로 낸다. (username 캐시, bloom filter, change_log, DataVersion)
+ * - 요청 전체의 쿼리 제한 시간 대신 배치마다 트랜잭션 timeout(batch-timeout-seconds)을 건다.
+ * - 한 번에 max-concurrent 개까지만 돈다. 요청 하나가 배치마다 커넥션을 잡으므로, 몰리면 조회 몫의 커넥션이 모자란다.
+ *   QueryBulkhead 의 HEAVY 자리를 쓰지 않는 것은 등록이 본문을 다 읽을 때까지 자리를 오래 잡기 때문이다.
+ */
+@Slf4j
+@Component
+public class MemberBulkIngestService {
+
+    private static final String INSERT_PREFIX = "insert into member (member_id, username, age, team_id) values ";
+    private static final String ROW_VALUES = "(?, ?, ?, ?)";
+    private static final int MAX_ERROR_MESSAGE = 300; // 드라이버 메시지에는 SQL 전체가 들어 있다.
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdBlockAllocator idAllocator;
+    private final TeamNameResolver teamNameResolver;
+    private final EntityChangePublisher changePublisher;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int rowsPerStatement;
+    private final int maxErrors;
+    private final String fullInsertSql; // rows-per-statement 개짜리. 마지막 조각만 따로 만든다.
+    private final int maxConcurrent;
+    private final Semaphore permits;
+
+    private final Counter insertedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedBatchCounter;
+    private final Counter busyCounter;
+
+    public MemberBulkIngestService(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   IdBlockAllocators idBlockAllocators,
+                                   TeamNameResolver teamNameResolver,
+                                   EntityChangePublisher changePublisher,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry registry,
+                                   @Value("${study.bulk-ingest.batch-size:5000}") int batchSize,
+                                   @Value("${study.bulk-ingest.rows-per-statement:500}") int rowsPerStatement,
+                                   @Value("${study.bulk-ingest.batch-timeout-seconds:30}") int batchTimeoutSeconds,
+                                   @Value("${study.bulk-ingest.max-errors:100}") int maxErrors,
+                                   @Value("${study.bulk-ingest.max-concurrent:1}") int maxConcurrent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(batchTimeoutSeconds); // JdbcTemplate 이 statement 의 queryTimeout 으로 건다.
+        this.idAllocator = idBlockAllocators.forSequence("member_seq");
+        this.teamNameResolver = teamNameResolver;
+        this.changePublisher = changePublisher;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.rowsPerStatement = Math.min(rowsPerStatement, batchSize);
+        this.maxErrors = maxErrors;
+        this.fullInsertSql = insertSql(this.rowsPerStatement);
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+
+        this.insertedCounter = registry.counter("member.bulk-ingest.inserted");
+        this.rejectedCounter = registry.counter("member.bulk-ingest.rejected");
+        this.failedBatchCounter = registry.counter("member.bulk-ingest.failed-batches");
+        this.busyCounter = registry.counter("member.bulk-ingest.busy");
+    }
+
+    /** 호출하는 쪽에서 트랜잭션을 열면 안 된다. 배치마다 따로 커밋해야 하고, TeamNameResolver 캐시도 쓰기 트랜잭션에서는 꺼진다. */
+    public MemberIngestResult ingest(InputStream body, IngestFormat format, Charset charset) throws IOException {
+        if (!permits.tryAcquire()) {
+            busyCounter.increment();
+            throw new IngestBusyException(maxConcurrent);
+        }
+        try {
+            return ingestWithPermit(body, format, charset);
+        } finally {
+            permits.release();
+        }
+    }
+
+    int inFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    private MemberIngestResult ingestWithPermit(InputStream body, IngestFormat format, Charset charset) throws IOException {
+        long start = System.nanoTime();
+        MemberIngestReader reader = new MemberIngestReader(
+                new BufferedReader(new InputStreamReader(body, charset), 64 * 1024), format, objectMapper);
+        Progress progress = new Progress();
+        List<PendingMember> batch = new ArrayList<>(batchSize);
+
+        MemberIngestRow row;
+        while ((row = reader.next()) != null) {
+            progress.received++;
+            if (row.isRejected()) {
+                progress.reject(row.getLine(), row.getError());
+                continue;
+            }
+            Long teamId = null;
+            if (row.getTeamName() != null) {
+                List<Long> teamIds = teamNameResolver.resolve(row.getTeamName());
+                if (teamIds.isEmpty()) {
+                    progress.reject(row.getLine(), "unknown team: " + row.getTeamName());
+                    continue;
+                }
+                teamId = teamIds.get(0);
+            }
+            batch.add(new PendingMember(row.getLine(), row.getUsername(), row.getAge(), teamId));
+            if (batch.size() == batchSize) {
+                writeBatch(batch, progress);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, progress);
+        }
+        return progress.result(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void writeBatch(List<PendingMember> batch, Progress progress) {
+        int index = progress.batches++;
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            progress.inserted += batch.size();
+            insertedCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            // 이 배치만 롤백된다. 받은 id 는 버린다. (시퀀스 구멍)
+            long fromLine = batch.get(0).line;
+            long toLine = batch.get(batch.size() - 1).line;
+            log.warn("bulk ingest batch {} (lines {}~{}) failed", index, fromLine, toLine, e);
+            progress.failedRows += batch.size();
+            progress.failedBatches++;
+            progress.error(IngestError.batch(index, fromLine, toLine, message(e)));
+            failedBatchCounter.increment();
+        }
+    }
+
+    private void insert(List<PendingMember> batch) {
+        List<EntityChangeEvent> events = new ArrayList<>(batch.size());
+        for (int from = 0; from < batch.size(); from += rowsPerStatement) {
+            List<PendingMember> chunk = batch.subList(from, Math.min(from + rowsPerStatement, batch.size()));
+            long[] ids = new long[chunk.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = idAllocator.next();
+                events.add(new EntityChangeEvent(EntityType.MEMBER, ids[i], ChangeType.INSERT, chunk.get(i).username));
+            }
+            String sql = chunk.size() == rowsPerStatement ? fullInsertSql : insertSql(chunk.size());
+            jdbcTemplate.update(sql, ps -> {
+                int p = 1;
+                for (int i = 0; i < ids.length; i++) {
+                    PendingMember member = chunk.get(i);
+                    ps.setLong(p++, ids[i]);
+                    ps.setString(p++, member.username);
+                    ps.setInt(p++, member.age);
+                    if (member.teamId == null) {
+                        ps.setNull(p++, Types.BIGINT);
+                    } else {
+                        ps.setLong(p++, member.teamId);
+                    }
+                }
+            });
+        }
+        changePublisher.publishAll(events);
+    }
+
+    private static String insertSql(int rows) {
+        return INSERT_PREFIX + String.join(", ", Collections.nCopies(rows, ROW_VALUES));
+    }
+
+    private static String message(RuntimeException e) {
+        String message = String.valueOf(NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        return message.length() <= MAX_ERROR_MESSAGE ? message : message.substring(0, MAX_ERROR_MESSAGE) + "...";
+    }
+
+    private static class PendingMember {
+        private final long line;
+        private final String username;
+        private final int age;
+        private final Long teamId;
+
+        PendingMember(long line, String username, int age, Long teamId) {
+            this.line = line;
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+        }
+    }
+
+    /** 요청 하나의 진행 상황. 요청 스레드 하나만 쓴다. */
+    private class Progress {
+        long received;
+        long inserted;
+        long rejected;
+        long failedRows;
+        int batches;
+        int failedBatches;
+        final List<IngestError> errors = new ArrayList<>();
+        boolean errorsTruncated;
+
+        void reject(long line, String message) {
+            rejected++;
+            rejectedCounter.increment();
+            error(IngestError.row(line, message));
+        }
+
+        void error(IngestError error) {
+            if (errors.size() < maxErrors) {
+                errors.add(error);
+            } else {
+                errorsTruncated = true;
+            }
+        }
+
+        MemberIngestResult result(long elapsedMs) {
+            return new MemberIngestResult(received, inserted, rejected, failedRows, batches, failedBatches,
+                    elapsedMs, errors, errorsTruncated);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package study.querydsl.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NDJSON / CSV 본문을 한 줄씩 읽는다. 본문 전체를 메모리에 올리지 않으므로 크기 제한이 없다.
+ * CSV 는 따옴표로 감싼 값("a,b", "say ""hi""")까지만 지원한다. 값 안의 줄바꿈은 지원하지 않는다.
+ */
+class MemberIngestReader {
+
+    private static final String USERNAME = "username";
+    private static final String AGE = "age";
+    private static final String TEAM_NAME = "teamName";
+
+    private final BufferedReader reader;
+    private final IngestFormat format;
+    private final ObjectMapper objectMapper;
+
+    private Map<String, Integer> csvColumns; // CSV 헤더: 컬럼 이름 -> 위치
+    private long lineNumber;
+
+    MemberIngestReader(BufferedReader reader, IngestFormat format, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /** 다음 줄. 끝이면 null. 빈 줄은 건너뛴다. */
+    MemberIngestRow next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        if (format == IngestFormat.NDJSON) {
+            return parseJson(line);
+        }
+        if (csvColumns == null) {
+            csvColumns = parseHeader(line);
+            return next();
+        }
+        return parseCsv(line);
+    }
+
+    private MemberIngestRow parseJson(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (!node.isObject()) {
+                return MemberIngestRow.rejected(lineNumber, "not a json object");
+            }
+            return MemberIngestRow.of(lineNumber, text(node, USERNAME), text(node, AGE), text(node, TEAM_NAME));
+        } catch (JsonProcessingException e) {
+            return MemberIngestRow.rejected(lineNumber, "invalid json: " + e.getOriginalMessage());
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        List<String> names = splitCsv(line);
+        if (names == null) {
+            throw new InvalidIngestFormatException("invalid csv header: " + line);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        if (!columns.containsKey(USERNAME) || !columns.containsKey(AGE)) {
+            throw new InvalidIngestFormatException("csv header must contain username and age: " + line);
+        }
+        return columns;
+    }
+
+    private MemberIngestRow parseCsv(String line) {
+        List<String> values = splitCsv(line);
+        if (values == null) {
+            return MemberIngestRow.rejected(lineNumber, "unterminated quote");
+        }
+        return MemberIngestRow.of(lineNumber, column(values, USERNAME), column(values, AGE), column(values, TEAM_NAME));
+    }
+
+    private String column(List<String> values, String name) {
+        Integer index = csvColumns.get(name);
+        return index == null || index >= values.size() ? null : values.get(index);
+    }
+
+    /** 따옴표가 닫히지 않았으면 null */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"'); // "" 는 따옴표 하나
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
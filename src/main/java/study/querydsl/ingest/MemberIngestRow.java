@@ -0,0 +1,45 @@
+package study.querydsl.ingest;
+
+import lombok.Getter;
+
+/** 본문 한 줄. 형식이 잘못된 줄은 error 에 이유를 담는다. */
+@Getter
+final class MemberIngestRow {
+
+    private final long line;
+    private final String username;
+    private final Integer age;
+    private final String teamName;
+    private final String error;
+
+    private MemberIngestRow(long line, String username, Integer age, String teamName, String error) {
+        this.line = line;
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+        this.error = error;
+    }
+
+    static MemberIngestRow of(long line, String username, String age, String teamName) {
+        if (username == null || username.isBlank()) {
+            return rejected(line, "username is required");
+        }
+        if (age == null || age.isBlank()) {
+            return rejected(line, "age is required");
+        }
+        try {
+            return new MemberIngestRow(line, username, Integer.valueOf(age.trim()),
+                    teamName == null || teamName.isBlank() ? null : teamName, null);
+        } catch (NumberFormatException e) {
+            return rejected(line, "age is not a number: " + age);
+        }
+    }
+
+    static MemberIngestRow rejected(long line, String error) {
+        return new MemberIngestRow(line, null, null, null, error);
+    }
+
+    boolean isRejected() {
+        return error != null;
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.projection;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * DTO 생성자에 붙이면 컴파일할 때 같은 패키지에 &lt;Dto&gt;Projection 이 생긴다. (projection-processor)
+ *
+ * Projections.bean/fields/constructor 는 행마다 리플렉션으로 setter/필드/생성자를 찾아 호출하지만,
+ * 생성된 Projection 은 select 한 컬럼을 순서(index)대로 꺼내서 생성자를 직접 호출한다. alias 도 필요 없다.
+ * <pre>
+ * queryFactory.select(new UserDtoProjection(member.username, member.age)).from(member).fetch();
+ * </pre>
+ * 생성자 파라미터가 int 같은 기본형이면 null 은 기본값(0, false)으로, 다른 숫자 타입(Long 등)은 변환해서 넣는다.
+ */
+@Documented
+@Target(ElementType.CONSTRUCTOR)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GeneratedProjection {
+}
@@ -0,0 +1,13 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** 정렬할 수 없는 속성이거나, 인덱스를 못 타는 정렬로 너무 많은 행을 정렬해야 할 때. */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSortException extends RuntimeException {
+
+    public InvalidSortException(String message) {
+        super(message);
+    }
+}
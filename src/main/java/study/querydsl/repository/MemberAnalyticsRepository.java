@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberAgeStatDto;
+
+import java.util.List;
+
+/**
+ * 서브쿼리 패턴을 윈도우 함수로 바꾼 조회. JPQL 에는 윈도우 함수가 없어서 네이티브 SQL 로 작성한다.
+ *
+ * JPAExpressions 서브쿼리(예: 나이가 평균 이상인 회원)는 평균을 구하는 쿼리와 회원을 거르는 쿼리가 따로 돌고,
+ * 팀별 평균처럼 바깥 row 를 참조하면 row 마다 다시 계산된다.
+ * 윈도우 함수는 member 를 한 번 읽으면서 집계값을 각 row 에 붙인다.
+ *
+ * 모든 메소드는 byTeam=true 면 팀별(partition by team_id), false 면 전체(over ()) 로 계산한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberAnalyticsRepository {
+
+    private static final RowMapper<MemberAgeStatDto> ROW_MAPPER = (rs, rowNum) -> {
+        MemberAgeStatDto dto = new MemberAgeStatDto();
+        dto.setMemberId(rs.getLong("member_id"));
+        dto.setUsername(rs.getString("username"));
+        dto.setAge(rs.getInt("age"));
+        dto.setTeamId(rs.getObject("team_id", Long.class));
+        dto.setAverageAge(rs.getObject("average_age", Double.class));
+        dto.setMaxAge(rs.getObject("max_age", Integer.class));
+        dto.setAgeRank(rs.getObject("age_rank", Long.class));
+        return dto;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** selectSubQuery: 회원별 평균 나이 */
+    public List<MemberAgeStatDto> findWithAverageAge(boolean byTeam) {
+        return query(byTeam, null, null);
+    }
+
+    /** subQuery: 나이가 가장 많은 회원 */
+    public List<MemberAgeStatDto> findOldest(boolean byTeam) {
+        return query(byTeam, "age = max_age", null);
+    }
+
+    /** subQueryGoe: 나이가 평균 이상인 회원 */
+    public List<MemberAgeStatDto> findAgeGoeAverage(boolean byTeam) {
+        return query(byTeam, "age >= average_age", null);
+    }
+
+    /** 팀별(또는 전체) 나이 많은 순 상위 n 명 */
+    public List<MemberAgeStatDto> findTopByAge(boolean byTeam, int n) {
+        return query(byTeam, "age_rank <= ?", n);
+    }
+
+    private List<MemberAgeStatDto> query(boolean byTeam, String filter, Object parameter) {
+        String window = byTeam ? "over (partition by team_id" : "over (";
+        // H2 는 int 컬럼의 avg 를 int 로 돌려주므로 double 로 바꿔서 계산한다.
+        String sql = "select * from ("
+                + " select member_id, username, age, team_id,"
+                + " avg(cast(age as double)) " + window + ") as average_age,"
+                + " max(age) " + window + ") as max_age,"
+                + " row_number() " + window + " order by age desc, member_id) as age_rank"
+                + " from member"
+                + ") stat"
+                + (filter == null ? "" : " where " + filter)
+                + " order by member_id";
+        return parameter == null
+                ? jdbcTemplate.query(sql, ROW_MAPPER)
+                : jdbcTemplate.query(sql, ROW_MAPPER, parameter);
+    }
+}
@@ -3,19 +3,27 @@ package study.querydsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import study.querydsl.coalesce.MemberSearchCoalescer;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.timeout.DeadlineJPAQueryFactory;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
@@ -26,10 +34,17 @@ public class MemberJpaRepository { // repository : 엔티티를 조회하기 위
 
     private final EntityManager em; // 순수 JPA
     private final JPAQueryFactory queryFactory; // Querydsl
+    private final TeamNameResolver teamNameResolver; // teamName -> team id (캐시)
+    private final MemberUsernameCache memberUsernameCache; // username -> 회원 (캐시)
+    private final MemberSearchCoalescer memberSearchCoalescer; // 동시에 들어온 같은 조회 합치기
 
-    public MemberJpaRepository(EntityManager em){
+    public MemberJpaRepository(EntityManager em, TeamNameResolver teamNameResolver, MemberUsernameCache memberUsernameCache,
+                               MemberSearchCoalescer memberSearchCoalescer){
         this.em = em;
-        this.queryFactory = new JPAQueryFactory(em);
+        this.queryFactory = new DeadlineJPAQueryFactory(em);
+        this.teamNameResolver = teamNameResolver;
+        this.memberUsernameCache = memberUsernameCache;
+        this.memberSearchCoalescer = memberSearchCoalescer;
     }
 
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
@@ -41,7 +56,11 @@ public class MemberJpaRepository { // repository : 엔티티를 조회하기 위
             builder.and(member.username.eq(condition.getUsername()));
         }
         if (hasText(condition.getTeamName())) {
-            builder.and(team.name.eq(condition.getTeamName()));
+            List<Long> teamIds = teamNameResolver.resolve(condition.getTeamName()); // team.name 대신 FK(team_id) 로 거른다.
+            if (teamIds.isEmpty()) {
+                return new ArrayList<>(); // 없는 팀
+            }
+            builder.and(member.team.id.in(teamIds));
         }
         if(condition.getAgeGoe() != null){
             builder.and(member.age.goe(condition.getAgeGoe()));
@@ -64,17 +83,35 @@ public class MemberJpaRepository { // repository : 엔티티를 조회하기 위
 
     // [기본으로 쓰기를 권장] Where 절 파라미터 방식
     public List<MemberTeamDto> search(MemberSearchCondition condition){ // DTO 로 프로젝션.
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
+        return search(condition, MemberField.ALL);
+    }
+
+    /**
+     * fields 에 있는 컬럼만 select 한다. teamName 컬럼이 없으면 team 조인을 생략한다.
+     * teamName 조건은 member.team_id 조건으로 바꿔서 거르고, 없는 팀이면 쿼리 없이 빈 결과.
+     * MemberRepository.search 와 같은 결과이므로 동시에 들어온 같은 조회는 같이 합친다.
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Set<MemberField> fields){
+        return memberSearchCoalescer.execute("search", condition, fields, null, () -> runSearch(condition, fields));
+    }
+
+    private List<MemberTeamDto> runSearch(MemberSearchCondition condition, Set<MemberField> fields){
+        List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+        if (MemberTeamProjection.unknownTeam(teamIds)) {
+            return new ArrayList<>();
+        }
+        boolean teamJoin = MemberTeamProjection.needsTeamJoin(fields);
+
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(MemberTeamProjection.select(fields, teamJoin))
+                .from(member);
+        if (teamJoin) {
+            query.leftJoin(member.team, team);
+        }
+        return query
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        MemberTeamProjection.teamIdIn(teamIds),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                         )
@@ -86,18 +123,65 @@ public class MemberJpaRepository { // repository : 엔티티를 조회하기 위
         /**
          * select 프로젝션이 달라져도, where 조건 코드를 그대로 사용할 수 있다!
          */
+        List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+        if (MemberTeamProjection.unknownTeam(teamIds)) {
+            return new ArrayList<>();
+        }
         return queryFactory
                 .selectFrom(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        MemberTeamProjection.teamIdIn(teamIds),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                         )
                 .fetch();
     }
 
+    /**
+     * searchMember 와 같은 조건의 엔티티를 id 순서로 chunkSize 개씩 나눠서 consumer 에 넘긴다.
+     * team 은 fetch join 으로 같이 가져오므로 getTeam() 이 추가 쿼리를 만들지 않는다.
+     *
+     * consumer 가 끝나면 flush (consumer 에서 바꾼 내용을 반영) 후 clear 해서
+     * 영속성 컨텍스트에는 항상 한 chunk 만 남는다. 전체 건수와 상관없이 메모리가 일정하다.
+     * 주의: clear 이므로 호출 전에 영속 상태였던 엔티티도 준영속이 된다. chunk 의 엔티티를 consumer 밖에 보관하지 말 것.
+     */
+    @Transactional
+    public void forEachChunk(MemberSearchCondition condition, int chunkSize, Consumer<List<Member>> consumer){
+        List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+        if (MemberTeamProjection.unknownTeam(teamIds)) {
+            return;
+        }
+        Long lastId = null;
+        while (true) {
+            List<Member> chunk = queryFactory
+                    .selectFrom(member)
+                    .leftJoin(member.team, team).fetchJoin()
+                    .where(
+                            idGt(lastId), // offset 대신 keyset: 뒤 chunk 로 갈수록 느려지지 않는다.
+                            usernameEq(condition.getUsername()),
+                            MemberTeamProjection.teamIdIn(teamIds),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe())
+                            )
+                    .orderBy(member.id.asc())
+                    .limit(chunkSize)
+                    .fetch();
+            if (chunk.isEmpty()) {
+                return;
+            }
+            lastId = chunk.get(chunk.size() - 1).getId();
+
+            consumer.accept(chunk);
+            em.flush();
+            em.clear();
+
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+        }
+    }
+
     // 조건 조합 예시
     private BooleanExpression ageBetween(int ageLoe, int ageGoe){
         return ageGoe(ageLoe).and(ageGoe(ageGoe)); // 단, null체크 조심해야 함.
@@ -107,8 +191,9 @@ public class MemberJpaRepository { // repository : 엔티티를 조회하기 위
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+
+    private BooleanExpression idGt(Long id) {
+        return id != null ? member.id.gt(id) : null;
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
@@ -140,18 +225,16 @@ public class MemberJpaRepository { // repository : 엔티티를 조회하기 위
                 .fetch();
     }
 
+    /**
+     * JPQL, Querydsl 버전 모두 MemberUsernameCache 하나로 모았다.
+     * 엔티티를 돌려주므로 캐시에 hit 해도 PK 로 한 번 읽는다. 쿼리가 없는 것은 없는 username 일 때뿐이다.
+     */
     public List<Member> findByUsername(String username){
-        return em.createQuery(
-                "select m from Member m where m.username = :username", Member.class
-        ).setParameter("username", username)
-                .getResultList();
+        return memberUsernameCache.findMembers(username);
     }
 
     public List<Member> findByUsername_Querydsl(String username){
-        return queryFactory
-                .selectFrom(member)
-                .where(member.username.eq(username))
-                .fetch();
+        return memberUsernameCache.findMembers(username);
     }
 
 }
@@ -0,0 +1,260 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.timeout.DeadlineJPAQueryFactory;
+import study.querydsl.timeout.QueryDeadline;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 큰 조회(전체 조회, 조건 없는 search)를 member_id 구간으로 나눠 병렬로 읽는다.
+ * 구간마다 EntityManager(= 커넥션)를 따로 열고, 같은 where 조건에 구간 조건만 더해서 chunk 단위로 읽는다.
+ *
+ * - readOrdered  : 구간 순서대로 이어 붙인다. (member_id 순) 전체 row 수가 max-rows 를 넘으면 중단한다.
+ * - readUnordered: 먼저 읽힌 chunk 부터 넘겨준다. 큐가 차면 읽는 쪽이 기다리므로(backpressure)
+ *                  메모리에는 최대 (max-buffered-chunks + partitions) * chunk-size 개만 올라온다.
+ */
+@Component
+public class MemberPartitionedReader {
+
+    private static final List<MemberTeamDto> END = new ArrayList<>(); // 구간 하나가 끝났다는 표시
+
+    private final EntityManagerFactory emf;
+    private final TeamNameResolver teamNameResolver;
+    private final ForkJoinPool pool;
+    private final int partitions;
+    private final int chunkSize;
+    private final int maxBufferedChunks;
+    private final int maxRows;
+
+    public MemberPartitionedReader(EntityManagerFactory emf,
+                                   TeamNameResolver teamNameResolver,
+                                   @Value("${study.partitioned-read.partitions:4}") int partitions,
+                                   @Value("${study.partitioned-read.chunk-size:1000}") int chunkSize,
+                                   @Value("${study.partitioned-read.max-buffered-chunks:8}") int maxBufferedChunks,
+                                   @Value("${study.partitioned-read.max-rows:1000000}") int maxRows) {
+        this.emf = emf;
+        this.teamNameResolver = teamNameResolver;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.maxBufferedChunks = maxBufferedChunks;
+        this.maxRows = maxRows;
+        this.pool = new ForkJoinPool(partitions); // 구간 하나가 커넥션 하나를 쓰므로 커넥션 풀 크기보다 작게
+    }
+
+    public List<MemberTeamDto> readOrdered(MemberSearchCondition condition) {
+        List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+        if (MemberTeamProjection.unknownTeam(teamIds)) {
+            return new ArrayList<>();
+        }
+        List<long[]> ranges = ranges(condition, teamIds);
+        AtomicInteger totalRows = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+
+        QueryDeadline deadline = QueryDeadline.current(); // 구간을 읽는 스레드에도 요청의 마감을 건다.
+        List<Future<List<MemberTeamDto>>> futures = new ArrayList<>();
+        for (long[] range : ranges) {
+            futures.add(pool.submit(() -> QueryDeadline.callWithin(deadline, () -> {
+                List<MemberTeamDto> rows = new ArrayList<>();
+                readRange(condition, teamIds, range, stop::get, chunk -> {
+                    if (totalRows.addAndGet(chunk.size()) > maxRows) {
+                        throw new IllegalStateException("more than " + maxRows + " rows, use readUnordered");
+                    }
+                    rows.addAll(chunk);
+                });
+                return rows;
+            })));
+        }
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        try {
+            for (Future<List<MemberTeamDto>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            stop.set(true); // 한 구간이 실패하면 나머지 구간도 멈춘다.
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            stop.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+        return result;
+    }
+
+    public void readUnordered(MemberSearchCondition condition, Consumer<List<MemberTeamDto>> consumer) {
+        List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+        if (MemberTeamProjection.unknownTeam(teamIds)) {
+            return;
+        }
+        List<long[]> ranges = ranges(condition, teamIds);
+        BlockingQueue<List<MemberTeamDto>> queue = new ArrayBlockingQueue<>(maxBufferedChunks);
+        AtomicBoolean stop = new AtomicBoolean();         // 더 읽지 않는다. (실패 또는 소비 중단)
+        AtomicBoolean consumerGone = new AtomicBoolean(); // 큐를 비워줄 쪽이 없다.
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        QueryDeadline deadline = QueryDeadline.current();
+        for (long[] range : ranges) {
+            pool.execute(() -> {
+                try {
+                    QueryDeadline.runWithin(deadline,
+                            () -> readRange(condition, teamIds, range, stop::get, chunk -> put(queue, chunk, consumerGone)));
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                    stop.set(true);
+                } finally {
+                    put(queue, END, consumerGone);
+                }
+            });
+        }
+
+        int running = ranges.size();
+        try {
+            while (running > 0) {
+                List<MemberTeamDto> chunk = queue.take();
+                if (chunk == END) {
+                    running--;
+                } else if (failure.get() == null) {
+                    consumer.accept(chunk);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } finally {
+            stop.set(true); // 소비하다 예외가 나면 읽던 구간도 멈춘다.
+            consumerGone.set(true);
+        }
+        if (failure.get() != null) {
+            throw unwrap(failure.get());
+        }
+    }
+
+    /** 조건에 맞는 member_id 의 최소~최대를 partitions 개의 구간 [from, to) 로 나눈다. */
+    private List<long[]> ranges(MemberSearchCondition condition, List<Long> teamIds) {
+        EntityManager em = emf.createEntityManager();
+        Tuple minMax;
+        try {
+            minMax = baseQuery(new DeadlineJPAQueryFactory(em), condition, teamIds)
+                    .select(member.id.min(), member.id.max())
+                    .fetchOne();
+        } finally {
+            em.close();
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        Long min = minMax == null ? null : minMax.get(member.id.min());
+        Long max = minMax == null ? null : minMax.get(member.id.max());
+        if (min == null || max == null) {
+            return ranges; // 조건에 맞는 회원 없음
+        }
+        long span = Math.max(1, (max - min + partitions) / partitions);
+        for (long from = min; from <= max; from += span) {
+            ranges.add(new long[]{from, Math.min(from + span, max + 1)});
+        }
+        return ranges;
+    }
+
+    /** 구간 하나를 keyset 방식(member_id > 마지막 id)으로 chunk 씩 읽는다. */
+    private void readRange(MemberSearchCondition condition, List<Long> teamIds, long[] range,
+                           BooleanSupplier stop, Consumer<List<MemberTeamDto>> sink) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            JPAQueryFactory queryFactory = new DeadlineJPAQueryFactory(em);
+            long lastId = range[0] - 1;
+            while (!stop.getAsBoolean()) {
+                List<MemberTeamDto> chunk = baseQuery(queryFactory, condition, teamIds)
+                        .select(MemberTeamProjection.select(MemberField.ALL, true))
+                        .leftJoin(member.team, team)
+                        .where(member.id.gt(lastId), member.id.lt(range[1]))
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .fetch();
+                if (chunk.isEmpty()) {
+                    return;
+                }
+                sink.accept(chunk);
+                em.clear();
+                if (chunk.size() < chunkSize) {
+                    return;
+                }
+                lastId = chunk.get(chunk.size() - 1).getMemberId();
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /** teamName 조건은 team_id 로 거르므로 team 조인은 teamName 을 select 하는 쪽에서만 한다. */
+    private JPAQuery<?> baseQuery(JPAQueryFactory queryFactory, MemberSearchCondition condition, List<Long> teamIds) {
+        return queryFactory
+                .from(member)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        MemberTeamProjection.teamIdIn(teamIds),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                );
+    }
+
+    private void put(BlockingQueue<List<MemberTeamDto>> queue, List<MemberTeamDto> chunk, AtomicBoolean consumerGone) {
+        try {
+            // 꽉 차 있으면 기다린다. 소비 쪽이 중단됐으면 버린다.
+            while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (consumerGone.get()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RuntimeException unwrap(Throwable e) {
+        return e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
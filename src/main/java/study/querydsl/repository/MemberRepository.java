@@ -10,7 +10,7 @@ import java.util.List;
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
 
     // 쿼리메소드  select m from Member m where m.username = ?
-    List<Member> findByUsername(String username);
+    // findByUsername 은 MemberRepositoryCustom 으로 옮겼다. (MemberUsernameCache 를 거친다)
 
     /**  특정한 기능 or 화면 or API에 맞춰진 조회 쿼리가 필요할 때,
      * 인터페이스 없이 구현체를 바로 만드는 방법도 좋은 방법이다.
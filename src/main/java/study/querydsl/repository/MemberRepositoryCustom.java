@@ -2,13 +2,35 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberBatchResult;
+import study.querydsl.dto.MemberDeltaDto;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
 import java.util.List;
+import java.util.Set;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+    // fields 에 있는 컬럼만 조회한다.
+    List<MemberTeamDto> search(MemberSearchCondition condition, Set<MemberField> fields);
+    Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable, Set<MemberField> fields);
+    Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, Set<MemberField> fields);
+
+    // 여러 id 를 IN 절 몇 번으로 조회한다. 요청 순서대로, 없는 id 는 missing 으로 돌려준다.
+    List<MemberBatchResult> searchByIds(List<Long> ids, boolean withTeam);
+
+    // row_version 이 since 보다 큰 변경(팀 이름 변경, 삭제 포함)을 row_version 순서로 최대 limit 개. 커밋됐다고 볼 수 있는 version 까지만.
+    MemberDeltaDto searchDelta(long since, int limit);
+
+    // username 으로 조회. 쿼리메소드 대신 MemberUsernameCache 를 거친다. 엔티티는 캐시에 hit 해도 PK 로 DB 에서 읽는다.
+    List<Member> findByUsername(String username);
+
+    // username 으로 조회. 캐시에 있으면 DB 에 가지 않는다. 엔티티가 필요 없는 로그인 같은 곳은 이쪽을 쓴다.
+    List<MemberTeamDto> findDtosByUsername(String username);
 }
@@ -1,25 +1,42 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import study.querydsl.coalesce.MemberSearchCoalescer;
+import study.querydsl.delta.RowVersionWatermark;
+import study.querydsl.dto.MemberBatchResult;
+import study.querydsl.dto.MemberDeltaDto;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.event.EntityType;
+import study.querydsl.shard.ShardedMemberRepository;
+import study.querydsl.timeout.DeadlineJPAQueryFactory;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.springframework.util.StringUtils.countOccurrencesOf;
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTombstone.tombstone;
 
 /** [중요] Custom이 붙은 인터페이스를 구현하는 클래스의 네이밍 규칙
  *  MemberRepository 라는 인터페이스 이름을 그대로 가저가자.
@@ -27,53 +44,89 @@ import static study.querydsl.entity.QTeam.team;
  * */
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
+    /** IN 절 최대 파라미터 수. in_clause_parameter_padding 이 2의 거듭제곱으로 채우므로 2의 거듭제곱으로 둔다. */
+    static final int MAX_IN_SIZE = 512;
+
+    private static final Set<MemberField> FIELDS_WITHOUT_TEAM_NAME =
+            EnumSet.of(MemberField.MEMBER_ID, MemberField.USERNAME, MemberField.AGE, MemberField.TEAM_ID);
+
     private final JPAQueryFactory queryFactory; // QueryDSL을 쓰기 위함.
+    private final TeamNameResolver teamNameResolver;
+    private final MemberUsernameCache memberUsernameCache;
+    private final MemberSearchCoalescer memberSearchCoalescer;
+    private final RowVersionWatermark rowVersionWatermark;
+    private final ShardedMemberRepository shardedRepository; // study.sharding.enabled=true 일 때만 있다.
 
-    public MemberRepositoryImpl(EntityManager em){
-        this.queryFactory = new JPAQueryFactory(em);
+    public MemberRepositoryImpl(EntityManager em, TeamNameResolver teamNameResolver, MemberUsernameCache memberUsernameCache,
+                                MemberSearchCoalescer memberSearchCoalescer, RowVersionWatermark rowVersionWatermark,
+                                ObjectProvider<ShardedMemberRepository> shardedRepository){
+        this.queryFactory = new DeadlineJPAQueryFactory(em);
+        this.teamNameResolver = teamNameResolver;
+        this.memberUsernameCache = memberUsernameCache;
+        this.memberSearchCoalescer = memberSearchCoalescer;
+        this.rowVersionWatermark = rowVersionWatermark;
+        this.shardedRepository = shardedRepository.getIfAvailable();
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition){ // DTO 로 프로젝션.
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        return search(condition, MemberField.ALL);
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageSimple(condition, pageable, MemberField.ALL);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageComplex(condition, pageable, MemberField.ALL);
+    }
+
+    // 같은 조회가 동시에 들어오면 쿼리는 한 번만 실행한다. (MemberSearchCoalescer)
+    // 샤딩을 켜면 샤드에 scatter-gather 한다. 샤드 쪽은 fields 와 상관없이 모든 컬럼을 읽는다.
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Set<MemberField> fields) {
+        return memberSearchCoalescer.execute("search", condition, fields, null, () -> runSearch(condition, fields));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable, Set<MemberField> fields) {
+        return memberSearchCoalescer.execute("searchPageSimple", condition, fields, pageable,
+                () -> runSearchPageSimple(condition, pageable, fields));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, Set<MemberField> fields) {
+        return memberSearchCoalescer.execute("searchPageComplex", condition, fields, pageable,
+                () -> runSearchPageComplex(condition, pageable, fields));
+    }
+
+    private List<MemberTeamDto> runSearch(MemberSearchCondition condition, Set<MemberField> fields) {
+        if (shardedRepository != null) {
+            return shardedRepository.search(condition);
+        }
+        List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+        if (MemberTeamProjection.unknownTeam(teamIds)) {
+            return new ArrayList<>(); // 없는 팀: 쿼리 없이 빈 결과
+        }
+        return contentQuery(condition, teamIds, fields)
+                .fetch();
+    }
+
+    private Page<MemberTeamDto> runSearchPageSimple(MemberSearchCondition condition, Pageable pageable, Set<MemberField> fields) {
+        if (shardedRepository != null) {
+            return shardedRepository.searchPageSimple(condition, pageable);
+        }
         // offset: 몇 번을 스킵하고, 몇 번째부터 시작할 것이다.
         // limit : 한 페이지에, 최대 몇 개까지 보여줄 것이다.
         // fetchResult() 를 쓰면, count쿼리 한 번, content 쿼리 한 번, 이렇게 쿼리를 2번 실행한다.
 
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+        List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+        if (MemberTeamProjection.unknownTeam(teamIds)) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
+        QueryResults<MemberTeamDto> results = pageQuery(condition, teamIds, fields, pageable)
                 .fetchResults();
 
         List<MemberTeamDto> content = results.getResults(); // 실제 데이터를 꺼내서 content 에 저장
@@ -85,36 +138,27 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     /** total count 쿼리를 분리했을 때 이득
      *  조인이 필요없거나 간단한게 조회해도 count 쿼리를 실행할 수 있는 경우가 있다.
      *  웬만하면 count 쿼리는 분리해두는 것이 좋다.  */
-    @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    private Page<MemberTeamDto> runSearchPageComplex(MemberSearchCondition condition, Pageable pageable, Set<MemberField> fields) {
+        if (shardedRepository != null) {
+            return shardedRepository.searchPageComplex(condition, pageable);
+        }
+
+          List<Long> teamIds = MemberTeamProjection.teamIds(teamNameResolver, condition);
+          if (MemberTeamProjection.unknownTeam(teamIds)) {
+              return new PageImpl<>(new ArrayList<>(), pageable, 0);
+          }
 
           // content만 가져오는 쿼리
-          List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+          List<MemberTeamDto> content = pageQuery(condition, teamIds, fields, pageable)
                 .fetch();
 
-        // count만 가져오는 쿼리
+        // count만 가져오는 쿼리. teamName 조건도 team_id 로 거르므로 team 조인이 필요 없다.
         JPAQuery<Member> countQuery = queryFactory
                 .select(member)
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        MemberTeamProjection.teamIdIn(teamIds),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 );
@@ -126,12 +170,140 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     }
 
+    @Override
+    public List<MemberBatchResult> searchByIds(List<Long> ids, boolean withTeam) {
+        Set<MemberField> fields = withTeam ? MemberField.ALL : FIELDS_WITHOUT_TEAM_NAME;
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        Map<Long, MemberTeamDto> found = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += MAX_IN_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + MAX_IN_SIZE, distinctIds.size()));
+            List<MemberTeamDto> rows = contentQuery(new MemberSearchCondition(), null, fields)
+                    .where(member.id.in(chunk))
+                    .fetch();
+            for (MemberTeamDto row : rows) {
+                found.put(row.getMemberId(), row);
+            }
+        }
+
+        List<MemberBatchResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            MemberTeamDto row = found.get(id);
+            results.add(row != null ? MemberBatchResult.found(row) : MemberBatchResult.missing(id));
+        }
+        return results;
+    }
+
+    /**
+     * 회원 변경(팀 변경은 TeamChangePropagator 가 소속 회원의 row_version 을 올린다)과 회원 삭제를
+     * row_version 인덱스로 limit + 1 개씩 읽어 row_version 순서로 합친 뒤 앞의 limit 개만 쓴다.
+     * row_version 은 커밋 순서가 아니므로 RowVersionWatermark 가 커밋됐다고 보는 version 까지만 읽는다.
+     * 응답의 version 은 다 읽었으면 그 상한, 남았으면(hasMore) 쓴 것 중 마지막 row_version.
+     */
+    @Override
+    public MemberDeltaDto searchDelta(long since, int limit) {
+        if (since > 0 && tombstonesPurgedAfter(since)) {
+            return MemberDeltaDto.resync();
+        }
+        long safeVersion = rowVersionWatermark.safeVersion();
+        if (safeVersion <= since) {
+            return new MemberDeltaDto(since, new ArrayList<>(), new ArrayList<>(), false);
+        }
+
+        List<DeltaChange> changes = new ArrayList<>();
+        for (Tuple row : queryFactory.select(member.rowVersion, member.id).from(member)
+                .where(member.rowVersion.gt(since), member.rowVersion.loe(safeVersion))
+                .orderBy(member.rowVersion.asc()).limit(limit + 1).fetch()) {
+            changes.add(new DeltaChange(row.get(member.rowVersion), false, row.get(member.id)));
+        }
+        for (Tuple row : queryFactory.select(tombstone.rowVersion, tombstone.entityId).from(tombstone)
+                .where(tombstone.entityType.eq(EntityType.MEMBER),
+                        tombstone.rowVersion.gt(since), tombstone.rowVersion.loe(safeVersion))
+                .orderBy(tombstone.rowVersion.asc()).limit(limit + 1).fetch()) {
+            changes.add(new DeltaChange(row.get(tombstone.rowVersion), true, row.get(tombstone.entityId)));
+        }
+        changes.sort(Comparator.comparingLong(change -> change.version));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+
+        List<Long> memberIds = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (DeltaChange change : changes) {
+            if (change.deleted) {
+                deleted.add(change.id);
+            } else {
+                memberIds.add(change.id);
+            }
+        }
+
+        List<MemberTeamDto> changed = new ArrayList<>();
+        for (MemberBatchResult result : searchByIds(memberIds, true)) {
+            if (result.isFound()) { // 그 사이에 지워졌으면 다음 delta 의 deleted 로 나간다.
+                changed.add(result.getMember());
+            }
+        }
+
+        long version = hasMore ? changes.get(changes.size() - 1).version : safeVersion;
+        return new MemberDeltaDto(version, changed, deleted, hasMore);
+    }
+
+    /** since 이후의 tombstone 이 retention 으로 지워졌으면 true. TombstonePurger 가 남겨 두는 경계 참고. */
+    private boolean tombstonesPurgedAfter(long since) {
+        Tuple oldest = queryFactory.select(tombstone.id.min(), tombstone.rowVersion.min()).from(tombstone).fetchOne();
+        Long minId = oldest == null ? null : oldest.get(tombstone.id.min());
+        Long minVersion = oldest == null ? null : oldest.get(tombstone.rowVersion.min());
+        // id 1 이 남아 있으면 아직 지운 적이 없다. (id 1 이 롤백으로 빠졌으면 필요 없는 resync 가 한 번 날 수 있다)
+        return minId != null && minId > 1 && since < minVersion;
+    }
+
+    @Override
+    public List<Member> findByUsername(String username) {
+        return memberUsernameCache.findMembers(username);
+    }
+
+    @Override
+    public List<MemberTeamDto> findDtosByUsername(String username) {
+        return memberUsernameCache.find(username);
+    }
+
+    /** pageable 의 sort 대로 정렬한다. 정렬 조건이 없어도 member.id 순서로 정렬해서 페이지 내용이 매번 같다. */
+    private JPAQuery<MemberTeamDto> pageQuery(MemberSearchCondition condition, List<Long> teamIds,
+                                             Set<MemberField> fields, Pageable pageable) {
+        return contentQuery(condition, teamIds, fields, MemberSortTranslator.needsTeamJoin(pageable.getSort()))
+                .orderBy(MemberSortTranslator.orderBy(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize());
+    }
+
+    private JPAQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition, List<Long> teamIds, Set<MemberField> fields) {
+        return contentQuery(condition, teamIds, fields, false);
+    }
+
+    /** 요청한 컬럼만 select 하고, teamName 컬럼이 없으면(teamName 으로 정렬하지도 않으면) team 조인을 생략한다. */
+    private JPAQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition, List<Long> teamIds,
+                                                 Set<MemberField> fields, boolean sortByTeam) {
+        boolean teamJoin = MemberTeamProjection.needsTeamJoin(fields) || sortByTeam;
+
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(MemberTeamProjection.select(fields, teamJoin))
+                .from(member);
+        if (teamJoin) {
+            query.leftJoin(member.team, team);
+        }
+        return query
+                .where(
+                        usernameEq(condition.getUsername()),
+                        MemberTeamProjection.teamIdIn(teamIds),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                );
+    }
+
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
-    }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
@@ -140,4 +312,16 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     private BooleanExpression ageLoe(Integer ageLoe) {
         return ageLoe != null ? member.age.loe(ageLoe) : null;
     }
+
+    private static class DeltaChange {
+        final long version;
+        final boolean deleted;
+        final long id;
+
+        DeltaChange(long version, boolean deleted, long id) {
+            this.version = version;
+            this.deleted = deleted;
+            this.id = id;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Pageable 의 sort 를 OrderSpecifier 로 바꾼다. 정해진 속성만 허용하고, 같은 값끼리의 순서가 매번 같도록 마지막에 member.id 를 붙인다.
+ *
+ * 인덱스((컬럼, member_id), Member 의 @Table 참고)로 정렬할 수 있는 것은 속성 하나 + member.id 뿐이다.
+ * 그 외(teamName, 여러 속성)는 DB 가 조건에 맞는 행을 모두 읽어 정렬하므로 offset + size 가 UNINDEXED_SORT_MAX_ROWS 를 넘으면 거절한다.
+ */
+final class MemberSortTranslator {
+
+    static final int UNINDEXED_SORT_MAX_ROWS = 1000;
+
+    /** sort= 에 쓸 수 있는 속성. column 은 인덱스 검증 테스트에서 쓴다. */
+    enum SortProperty {
+        MEMBER_ID("memberId", member.id, "member_id", true),
+        USERNAME("username", member.username, "username", true),
+        AGE("age", member.age, "age", true),
+        TEAM_NAME("teamName", team.name, null, false); // team 조인이 필요하다.
+
+        final String property;
+        final ComparableExpressionBase<?> path;
+        final String column;
+        final boolean indexed;
+
+        SortProperty(String property, ComparableExpressionBase<?> path, String column, boolean indexed) {
+            this.property = property;
+            this.path = path;
+            this.column = column;
+            this.indexed = indexed;
+        }
+
+        static SortProperty of(String property) {
+            for (SortProperty value : values()) {
+                if (value.property.equals(property)) {
+                    return value;
+                }
+            }
+            throw new InvalidSortException("unknown sort property: " + property);
+        }
+    }
+
+    private MemberSortTranslator() {
+    }
+
+    static OrderSpecifier<?>[] orderBy(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            SortProperty property = SortProperty.of(order.getProperty());
+            OrderSpecifier<?> orderSpecifier = order.isAscending() ? property.path.asc() : property.path.desc();
+            if (order.getNullHandling() == Sort.NullHandling.NULLS_FIRST) {
+                orderSpecifier = orderSpecifier.nullsFirst();
+            } else if (order.getNullHandling() == Sort.NullHandling.NULLS_LAST) {
+                orderSpecifier = orderSpecifier.nullsLast();
+            }
+            orders.add(orderSpecifier);
+            byId = property == SortProperty.MEMBER_ID;
+            if (byId) {
+                break; // id 는 유일하므로 뒤의 정렬은 의미가 없다.
+            }
+        }
+        if (!indexed(sort) && pageable.getOffset() + pageable.getPageSize() > UNINDEXED_SORT_MAX_ROWS) {
+            throw new InvalidSortException("sort " + sort + " is not index-supported; offset + size must be <= "
+                    + UNINDEXED_SORT_MAX_ROWS);
+        }
+        if (!byId) {
+            orders.add(member.id.asc()); // tiebreaker
+        }
+        return orders.toArray(new OrderSpecifier<?>[0]);
+    }
+
+    static boolean needsTeamJoin(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (SortProperty.of(order.getProperty()) == SortProperty.TEAM_NAME) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 첫 속성에 인덱스가 있고(오름차순), 뒤에는 member.id 만 오는 경우 */
+    static boolean indexed(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty()) {
+            return true; // member.id 로만 정렬 (PK)
+        }
+        SortProperty first = SortProperty.of(orders.get(0).getProperty());
+        if (!first.indexed || orders.get(0).getNullHandling() != Sort.NullHandling.NATIVE) {
+            return false;
+        }
+        if (orders.get(0).isDescending()) {
+            return false; // H2 는 오름차순 인덱스를 거꾸로 읽어 정렬하지 않는다.
+        }
+        return first == SortProperty.MEMBER_ID // PK. 뒤의 정렬은 버린다.
+                || orders.size() == 1
+                || (SortProperty.of(orders.get(1).getProperty()) == SortProperty.MEMBER_ID && orders.get(1).isAscending());
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** fields 에 맞춰 select 절과 team 조인 여부를 정하고, teamName 조건을 team id 조건으로 바꾼다. MemberJpaRepository, MemberRepositoryImpl 공용. */
+class MemberTeamProjection {
+
+    private MemberTeamProjection() {
+    }
+
+    /**
+     * teamName 을 조회할 때만 team 을 조인한다.
+     * teamName 조건은 TeamNameResolver 로 member.team_id 조건으로 바꿔서 거르므로 조인이 필요 없다.
+     */
+    static boolean needsTeamJoin(Set<MemberField> fields) {
+        return fields.contains(MemberField.TEAM_NAME);
+    }
+
+    /** teamName 조건을 team id 목록으로 바꾼다. null: 조건 없음, 빈 목록: 없는 팀 (결과도 없음) */
+    static List<Long> teamIds(TeamNameResolver resolver, MemberSearchCondition condition) {
+        return hasText(condition.getTeamName()) ? resolver.resolve(condition.getTeamName()) : null;
+    }
+
+    static boolean unknownTeam(List<Long> teamIds) {
+        return teamIds != null && teamIds.isEmpty();
+    }
+
+    static BooleanExpression teamIdIn(List<Long> teamIds) {
+        return teamIds != null ? member.team.id.in(teamIds) : null; // 하나면 querydsl 이 = 로 만든다.
+    }
+
+    static Expression<MemberTeamDto> select(Set<MemberField> fields, boolean teamJoined) {
+        if (teamJoined && fields.containsAll(MemberField.ALL)) {
+            return new QMemberTeamDto( // 전체 컬럼이면 기존처럼 생성자 프로젝션
+                    member.id.as("memberId"), member.username, member.age,
+                    team.id.as("teamId"),
+                    team.name.as("teamName")
+            );
+        }
+        List<Expression<?>> columns = new ArrayList<>();
+        for (MemberField field : fields) {
+            columns.add(column(field, teamJoined));
+        }
+        return Projections.bean(MemberTeamDto.class, columns.toArray(new Expression<?>[0]));
+    }
+
+    private static Expression<?> column(MemberField field, boolean teamJoined) {
+        switch (field) {
+            case MEMBER_ID:
+                return member.id.as("memberId");
+            case USERNAME:
+                return member.username;
+            case AGE:
+                return member.age;
+            case TEAM_ID:
+                // 조인이 없으면 member 테이블의 FK(team_id) 를 그대로 읽는다.
+                return teamJoined ? team.id.as("teamId") : member.team.id.as("teamId");
+            case TEAM_NAME:
+                return team.name.as("teamName");
+            default:
+                throw new IllegalArgumentException("unknown field: " + field);
+        }
+    }
+}
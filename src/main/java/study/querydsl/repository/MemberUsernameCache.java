@@ -0,0 +1,215 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.bloom.UsernameBloomFilter;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeBatchEvent;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityType;
+import study.querydsl.timeout.DeadlineJPAQueryFactory;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * username -> 회원(DTO) near cache. 크기와 TTL 로 제한한다.
+ * MemberRepository.findByUsername / findDtosByUsername, MemberJpaRepository.findByUsername / findByUsername_Querydsl 이
+ * 모두 여기로 온다.
+ *
+ * - find(): 캐시만 보고 돌려준다. (MemberRepository.findDtosByUsername) 로그인처럼 자주 부르는 곳은 이쪽을 쓴다.
+ * - UsernameBloomFilter 가 "없음" 이라고 하면 캐시에도 넣지 않고 바로 빈 결과. (가입 화면처럼 대부분 없는 이름을 찾는 경우)
+ * - findMembers(): 엔티티가 필요한 경우(findByUsername). 엔티티는 영속성 컨텍스트에 올려야 하므로
+ *   캐시에 hit 해도 PK 로 한 번 읽는다. 2차 캐시가 없으므로 쿼리 수는 줄지 않고, 줄어드는 것은 없는 username 의 쿼리뿐이다.
+ *
+ * 무효화 (트랜잭션이 끝난 뒤, TeamNameResolver 와 같은 방식)
+ * - Member 저장: 그 username 만 지운다. 새 회원 id 는 캐시된 목록에 있을 수 없다.
+ * - Member 삭제/수정: 그 username 과, 그 회원 id 가 들어 있는 항목(username 변경 시 예전 이름)을 지운다.
+ *   이벤트에는 예전 username 이 없으므로 memberId -> username 역인덱스(memberNames)로 찾는다.
+ * - Team 수정/삭제: DTO 의 teamName 이 바뀌므로 전부 지운다.
+ * - 쓰기 트랜잭션 안에서는 캐시를 쓰지 않는다.
+ */
+@Component
+public class MemberUsernameCache {
+
+    private final JPAQueryFactory queryFactory;
+    private final UsernameBloomFilter usernameBloomFilter;
+    private final Cache<String, List<MemberTeamDto>> cache;
+    // memberId -> 그 회원이 들어 있는 캐시 키(username). 캐시에서 빠지면 같이 뺀다.
+    private final Map<Long, Set<String>> memberNames = new ConcurrentHashMap<>();
+
+    public MemberUsernameCache(EntityManager em,
+                               UsernameBloomFilter usernameBloomFilter,
+                               MeterRegistry registry,
+                               @Value("${study.username-cache.max-size:10000}") long maxSize,
+                               @Value("${study.username-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.queryFactory = new DeadlineJPAQueryFactory(em);
+        this.usernameBloomFilter = usernameBloomFilter;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds)) // 이벤트 없이 바뀐 경우(JDBC, 벌크)에도 이 시간 안에는 맞춰진다.
+                .recordStats()
+                .executor(Runnable::run) // removalListener 를 지운 스레드에서 바로 돌린다.
+                .removalListener((String username, List<MemberTeamDto> dtos, RemovalCause cause) -> unindex(username, dtos))
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size ...
+        CaffeineCacheMetrics.monitor(registry, cache, "member.username");
+        Gauge.builder("member.username-cache.hit-ratio", cache, c -> c.stats().hitRate())
+                .register(registry);
+    }
+
+    /** 캐시된 값을 그대로 돌려주므로 목록도 DTO 도 수정하지 말 것 */
+    public List<MemberTeamDto> find(String username) {
+        if (inWriteTransaction()) {
+            return load(username);
+        }
+        if (!usernameBloomFilter.mightContain(username)) {
+            return Collections.emptyList(); // 확실히 없는 username: DB 도 캐시도 거치지 않는다.
+        }
+        // 같은 username 을 동시에 찾으면 한 번만 읽는다. 읽는 중에 무효화되면 읽기가 끝난 뒤 지워진다.
+        boolean[] loaded = {false};
+        List<MemberTeamDto> found = cache.get(username, name -> {
+            loaded[0] = true;
+            List<MemberTeamDto> rows = load(name);
+            if (rows.isEmpty()) {
+                usernameBloomFilter.recordFalsePositive();
+            }
+            return rows;
+        });
+        if (loaded[0]) {
+            index(username, found); // 캐시에 들어간 뒤에 넣는다. unindex 가 캐시를 보고 판단하므로.
+        }
+        return found;
+    }
+
+    public List<Member> findMembers(String username) {
+        if (inWriteTransaction()) {
+            return queryFactory
+                    .selectFrom(member)
+                    .where(member.username.eq(username))
+                    .fetch();
+        }
+        List<MemberTeamDto> found = find(username);
+        if (found.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(found.size());
+        for (MemberTeamDto dto : found) {
+            ids.add(dto.getMemberId());
+        }
+        return queryFactory
+                .selectFrom(member)
+                .where(member.id.in(ids), member.username.eq(username)) // 무효화 전에 이름이 바뀐 회원은 빠진다.
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onChange(EntityChangeEvent event) {
+        if (event.getEntityType() == EntityType.TEAM) {
+            if (event.getChangeType() != ChangeType.INSERT) {
+                cache.invalidateAll();
+            }
+            return;
+        }
+        if (event.getName() != null) {
+            cache.invalidate(event.getName());
+        }
+        if (event.getId() != null && event.getChangeType() != ChangeType.INSERT) { // 새 회원 id 는 캐시된 목록에 있을 수 없다.
+            Set<String> names = memberNames.remove(event.getId());
+            if (names != null) {
+                cache.invalidateAll(names);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onChanges(EntityChangeBatchEvent batch) {
+        for (EntityChangeEvent event : batch.getEvents()) {
+            onChange(event);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private List<MemberTeamDto> load(String username) {
+        List<MemberTeamDto> found = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.username.eq(username))
+                .orderBy(member.id.asc())
+                .fetch();
+        return Collections.unmodifiableList(found);
+    }
+
+    private void index(String username, List<MemberTeamDto> dtos) {
+        for (MemberTeamDto dto : dtos) {
+            memberNames.computeIfAbsent(dto.getMemberId(), id -> ConcurrentHashMap.newKeySet()).add(username);
+        }
+    }
+
+    /** 캐시에서 빠진 항목을 역인덱스에서 뺀다. 그 사이 같은 username 으로 다시 읽어 넣은 값에 있는 id 는 남긴다. */
+    private void unindex(String username, List<MemberTeamDto> dtos) {
+        if (dtos == null) {
+            return;
+        }
+        for (MemberTeamDto dto : dtos) {
+            memberNames.computeIfPresent(dto.getMemberId(), (id, names) -> {
+                List<MemberTeamDto> current = cache.asMap().get(username);
+                if (current == null || !containsMember(current, id)) {
+                    names.remove(username);
+                }
+                return names.isEmpty() ? null : names;
+            });
+        }
+    }
+
+    /** 테스트용. 역인덱스에 남은 회원 수 */
+    int indexedMemberCount() {
+        return memberNames.size();
+    }
+
+    private static boolean containsMember(List<MemberTeamDto> dtos, Long memberId) {
+        for (MemberTeamDto dto : dtos) {
+            if (memberId.equals(dto.getMemberId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,114 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.event.EntityChangeBatchEvent;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityType;
+import study.querydsl.timeout.DeadlineJPAQueryFactory;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * teamName -> team id 목록 캐시. teamName 조건을 team 조인 없이 member.team_id (FK, 인덱스) 조건으로 바꾸는 데 쓴다.
+ * 팀 이름은 중복될 수 있으므로 목록이다. 없는 이름이면 빈 목록 (조회할 필요 없이 결과가 비어 있음).
+ * 크기는 max-size 로 제한하고(오래 안 쓴 이름부터 밀려남), 없는 이름은 negative-ttl 동안만 기억한다.
+ *
+ * - Team 이 저장/수정/삭제되면 트랜잭션이 끝난 뒤(커밋, 롤백 모두) 전부 비운다. 팀 수가 적고 쓰기도 드물다.
+ *   엔티티 이벤트가 없는 쓰기(벌크 JPQL, JDBC)로 team 을 바꿨다면 invalidateAll() 을 직접 호출해야 한다.
+ * - 쓰기 트랜잭션 안에서는 캐시를 쓰지 않고 바로 조회한다. 아직 flush 되지 않은 팀도
+ *   조회 전 자동 flush 로 보이게 하고, 커밋되지 않은 팀 id 를 캐시에 남기지 않기 위해서다.
+ */
+@Component
+public class TeamNameResolver {
+
+    private final JPAQueryFactory queryFactory;
+    private final Cache<String, List<Long>> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public TeamNameResolver(EntityManager em,
+                            @Value("${study.team-name-cache.max-size:10000}") long maxSize,
+                            @Value("${study.team-name-cache.negative-ttl-seconds:5}") long negativeTtlSeconds) {
+        this.queryFactory = new DeadlineJPAQueryFactory(em);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, List<Long>>() {
+                    @Override
+                    public long expireAfterCreate(String key, List<Long> value, long currentTime) {
+                        return value.isEmpty() ? negativeTtlNanos : Long.MAX_VALUE; // 있는 팀은 이벤트로 지운다.
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, List<Long> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, List<Long> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public List<Long> resolve(String teamName) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return load(teamName);
+        }
+        long before = generation.get();
+        List<Long> teamIds = cache.get(teamName, this::load);
+        // 읽는 사이에 invalidateAll 이 지나갔으면 방금 넣은 값은 옛날 값일 수 있다. 넣은 뒤에 확인해야 빈틈이 없다.
+        // (invalidateAll 은 generation 을 먼저 올리고 비우므로, 여기서 못 봤다면 비우기가 넣은 값을 지운다)
+        if (generation.get() != before) {
+            cache.asMap().remove(teamName, teamIds);
+        }
+        return teamIds;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onChange(EntityChangeEvent event) {
+        if (event.getEntityType() == EntityType.TEAM) {
+            invalidateAll(); // 이름이 바뀐 경우 예전 이름도 지워야 하므로 전부
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onChanges(EntityChangeBatchEvent batch) {
+        for (EntityChangeEvent event : batch.getEvents()) {
+            if (event.getEntityType() == EntityType.TEAM) {
+                invalidateAll();
+                return;
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private List<Long> load(String teamName) {
+        List<Long> teamIds = queryFactory
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(teamName))
+                .orderBy(team.id.asc())
+                .fetch();
+        return Collections.unmodifiableList(teamIds);
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.shard;
+
+import java.util.List;
+
+/**
+ * Member 샤드 목록. Member 는 소속 팀의 team_id 로 샤드를 정한다. (팀이 없으면 0번 샤드)
+ * team_id 가 모든 샤드에서 유일해야 하므로 id 는 0번 샤드의 시퀀스 하나에서만 받는다.
+ */
+public class MemberShards {
+
+    private final List<Shard> shards;
+
+    public MemberShards(List<Shard> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard get(int index) {
+        return shards.get(index);
+    }
+
+    public Shard forTeam(Long teamId) {
+        return teamId == null ? shards.get(0) : shards.get(Math.floorMod(teamId, shards.size()));
+    }
+
+    public void close() {
+        for (Shard shard : shards) {
+            shard.getEntityManagerFactory().close();
+            shard.getDataSource().close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+
+import javax.persistence.EntityManagerFactory;
+
+@Getter
+public class Shard {
+
+    private final int index;
+    private final HikariDataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public Shard(int index, HikariDataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.index = index;
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+}
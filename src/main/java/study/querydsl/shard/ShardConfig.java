@@ -0,0 +1,65 @@
+package study.querydsl.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import study.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 샤드별 DataSource, EntityManagerFactory 설정. (study.sharding.enabled=true 일 때만)
+ * 기본 EntityManagerFactory 는 그대로 두고, 샤드용은 빈으로 등록하지 않고 MemberShards 안에서만 관리한다.
+ * (EntityManagerFactory 빈이 더 생기면 스프링 부트의 기본 JPA 자동 설정이 빠진다.)
+ */
+@Configuration
+@ConditionalOnProperty(name = "study.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardProperties.class)
+public class ShardConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberShards memberShards(ShardProperties properties,
+                                     EntityManagerFactoryBuilder builder,
+                                     ConfigurableListableBeanFactory beanFactory) {
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(properties.getUrls().get(i))
+                    .username(properties.getUsername())
+                    .password(properties.getPassword())
+                    .build();
+
+            // 기본 EntityManagerFactory 와 같은 설정이 되도록 스프링 부트가 넣어주던 값을 직접 넣는다.
+            Map<String, Object> jpaProperties = new HashMap<>();
+            jpaProperties.put(AvailableSettings.HBM2DDL_AUTO, properties.getDdlAuto());
+            jpaProperties.put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(beanFactory)); // 엔티티 리스너 주입
+            jpaProperties.put(AvailableSettings.PHYSICAL_NAMING_STRATEGY, SpringPhysicalNamingStrategy.class.getName());
+            jpaProperties.put(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName());
+
+            LocalContainerEntityManagerFactoryBean factoryBean = builder
+                    .dataSource(dataSource)
+                    .packages(Member.class)
+                    .persistenceUnit("shard" + i)
+                    .properties(jpaProperties)
+                    .build();
+            factoryBean.afterPropertiesSet();
+
+            shards.add(new Shard(i, dataSource, factoryBean.getObject()));
+        }
+        return new MemberShards(shards);
+    }
+}
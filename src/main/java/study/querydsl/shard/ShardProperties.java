@@ -0,0 +1,19 @@
+package study.querydsl.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter @Setter
+@ConfigurationProperties("study.sharding")
+public class ShardProperties {
+
+    private boolean enabled;
+    private List<String> urls = new ArrayList<>(); // 샤드 순서 = 샤드 번호. 바꾸면 라우팅이 달라진다.
+    private String username = "sa";
+    private String password = "";
+    private String ddlAuto = "create";
+}
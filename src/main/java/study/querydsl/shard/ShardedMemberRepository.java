@@ -0,0 +1,277 @@
+package study.querydsl.shard;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityChangePublisher;
+import study.querydsl.event.EntityType;
+import study.querydsl.id.IdBlockAllocator;
+import study.querydsl.id.IdBlockAllocators;
+import study.querydsl.repository.InvalidSortException;
+import study.querydsl.timeout.DeadlineJPAQueryFactory;
+import study.querydsl.timeout.QueryDeadline;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 샤드에 나눠 저장한 Member 조회. (scatter-gather)
+ *
+ * - teamName 조건이 있으면 그 팀이 있는 샤드에만 보낸다. 없는 팀이면 쿼리 없이 빈 결과.
+ * - 샤드마다 member_id 순으로 offset + size 개까지 읽어서 k-way merge 로 페이지를 자른다.
+ * - count 는 샤드별 count 의 합.
+ * - 정렬은 member_id 순서만 된다. 다른 sort 는 InvalidSortException.
+ *
+ * 쓰기는 JDBC 로 직접 한다. id 는 0번 샤드의 시퀀스에서만 받아 모든 샤드에서 유일하게 유지한다.
+ * 엔티티 리스너를 타지 않으므로 EntityChangePublisher 로 이벤트를 직접 낸다. (캐시, username Bloom filter, change_log)
+ *
+ * MemberRepositoryImpl 이 search, searchPageSimple, searchPageComplex 를 여기로 넘긴다.
+ * 그 외(searchByIds, searchDelta, findByUsername, JPA save)는 기본 DataSource 그대로이므로
+ * 샤딩을 켜면 회원 쓰기는 saveTeam / saveMember 로만 해야 한다.
+ */
+@Repository
+@ConditionalOnProperty(name = "study.sharding.enabled", havingValue = "true")
+public class ShardedMemberRepository {
+
+    private final MemberShards shards;
+    private final IdBlockAllocator teamIds;
+    private final IdBlockAllocator memberIds;
+    private final ExecutorService scatterExecutor;
+    private final EntityChangePublisher changePublisher;
+
+    // teamName -> 그 이름의 팀이 있는 샤드 번호들
+    private final Map<String, Set<Integer>> teamShards = new ConcurrentHashMap<>();
+    private volatile boolean teamShardsLoaded;
+
+    public ShardedMemberRepository(MemberShards shards, IdBlockAllocators allocators, EntityChangePublisher changePublisher) {
+        this.shards = shards;
+        this.changePublisher = changePublisher;
+        JdbcTemplate idSource = new JdbcTemplate(shards.get(0).getDataSource());
+        this.teamIds = new IdBlockAllocator(idSource, "team_seq", allocators.allocationSize("team_seq"));
+        this.memberIds = new IdBlockAllocator(idSource, "member_seq", allocators.allocationSize("member_seq"));
+        this.scatterExecutor = Executors.newFixedThreadPool(shards.all().size());
+    }
+
+    public Long saveTeam(String name) {
+        long id = teamIds.next();
+        Shard shard = shards.forTeam(id);
+        new JdbcTemplate(shard.getDataSource()).update("insert into team (id, name) values (?, ?)", id, name);
+        teamShards().computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(shard.getIndex());
+        changePublisher.publish(new EntityChangeEvent(EntityType.TEAM, id, ChangeType.INSERT, name));
+        return id;
+    }
+
+    public Long saveMember(String username, int age, Long teamId) {
+        long id = memberIds.next();
+        new JdbcTemplate(shards.forTeam(teamId).getDataSource())
+                .update("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+                        id, username, age, teamId);
+        changePublisher.publish(new EntityChangeEvent(EntityType.MEMBER, id, ChangeType.INSERT, username));
+        return id;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<List<MemberTeamDto>> perShard = scatter(targets(condition),
+                queryFactory -> contentQuery(queryFactory, condition).fetch());
+        return merge(perShard, 0, Integer.MAX_VALUE);
+    }
+
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<Shard> targets = targets(condition);
+        return new PageImpl<>(content(targets, condition, pageable), pageable, count(targets, condition));
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<Shard> targets = targets(condition);
+        List<MemberTeamDto> content = content(targets, condition, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(targets, condition));
+    }
+
+    private List<MemberTeamDto> content(List<Shard> targets, MemberSearchCondition condition, Pageable pageable) {
+        checkSort(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return merge(scatter(targets, queryFactory -> contentQuery(queryFactory, condition).fetch()), 0, Integer.MAX_VALUE);
+        }
+        // 어느 샤드에 몇 개가 있을지 모르므로 샤드마다 앞에서부터 offset + size 개를 가져온다.
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        List<List<MemberTeamDto>> perShard = scatter(targets,
+                queryFactory -> contentQuery(queryFactory, condition).limit(limit).fetch());
+        return merge(perShard, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    /** 샤드 결과는 member_id 순으로만 합칠 수 있다. */
+    private static void checkSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!"memberId".equals(order.getProperty()) || order.isDescending()) {
+                throw new InvalidSortException("sharded search only sorts by memberId asc: " + order);
+            }
+        }
+    }
+
+    private long count(List<Shard> targets, MemberSearchCondition condition) {
+        List<Long> counts = scatter(targets, queryFactory -> queryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .fetchOne());
+        return counts.stream().mapToLong(Long::longValue).sum();
+    }
+
+    private JPAQuery<MemberTeamDto> contentQuery(JPAQueryFactory queryFactory, MemberSearchCondition condition) {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .orderBy(member.id.asc()); // merge 하려면 샤드마다 같은 순서여야 한다.
+    }
+
+    /** teamName 조건으로 보낼 샤드를 줄인다. */
+    private List<Shard> targets(MemberSearchCondition condition) {
+        if (!hasText(condition.getTeamName())) {
+            return shards.all();
+        }
+        List<Shard> targets = new ArrayList<>();
+        for (Integer index : teamShards().getOrDefault(condition.getTeamName(), Set.of())) {
+            targets.add(shards.get(index));
+        }
+        return targets;
+    }
+
+    private <T> List<T> scatter(List<Shard> targets, Function<JPAQueryFactory, T> query) {
+        QueryDeadline deadline = QueryDeadline.current(); // scatter 스레드에도 요청의 마감을 건다.
+        List<Future<T>> futures = new ArrayList<>();
+        for (Shard shard : targets) {
+            futures.add(scatterExecutor.submit(() -> QueryDeadline.callWithin(deadline, () -> {
+                EntityManager em = shard.getEntityManagerFactory().createEntityManager();
+                try {
+                    return query.apply(new DeadlineJPAQueryFactory(em));
+                } finally {
+                    em.close();
+                }
+            })));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+        return results;
+    }
+
+    /** 샤드별로 member_id 순 정렬된 결과를 k-way merge 해서 offset 부터 size 개를 자른다. */
+    static List<MemberTeamDto> merge(List<List<MemberTeamDto>> perShard, long offset, int size) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>( // [샤드 번호, 현재 위치]
+                Comparator.comparing((int[] head) -> perShard.get(head[0]).get(head[1]).getMemberId()));
+        for (int i = 0; i < perShard.size(); i++) {
+            if (!perShard.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        long skipped = 0;
+        while (!heads.isEmpty() && result.size() < size) {
+            int[] head = heads.poll();
+            List<MemberTeamDto> rows = perShard.get(head[0]);
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(rows.get(head[1]));
+            }
+            if (head[1] + 1 < rows.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Set<Integer>> teamShards() {
+        if (!teamShardsLoaded) {
+            synchronized (teamShards) {
+                if (!teamShardsLoaded) {
+                    for (Shard shard : shards.all()) {
+                        List<String> names = new JdbcTemplate(shard.getDataSource())
+                                .queryForList("select name from team", String.class);
+                        for (String name : names) {
+                            teamShards.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(shard.getIndex());
+                        }
+                    }
+                    teamShardsLoaded = true;
+                }
+            }
+        }
+        return teamShards;
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scatterExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package study.querydsl.startup;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Hibernate SessionFactory 가 실제로 다 만들어진 시각을 남긴다. (StartupPhase.JPA_BOOTSTRAP)
+ *
+ * bootstrap-mode: deferred(fast 프로파일)면 entityManagerFactory 빈 생성은 부트스트랩 작업을 executor 에 넘기고 바로 끝나므로
+ * spring.beans.instantiate 단계만 보면 JPA 시간이 거의 0 으로 나온다. 빈 생성 시작부터 이 시각까지를 JPA 시간으로 본다.
+ */
+@Component
+public class JpaBootstrapTimer implements HibernatePropertiesCustomizer {
+
+    private volatile Instant readyAt;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.SESSION_FACTORY_OBSERVER, new ReadyObserver(this));
+    }
+
+    void markReady() {
+        readyAt = Instant.now();
+    }
+
+    /** entityManagerFactory 빈 생성 단계부터 SessionFactory 가 만들어질 때까지. 빈 생성이 더 늦게 끝났으면 그쪽까지. */
+    Duration durationFrom(StartupTimeline.TimelineEvent emfStep) {
+        Instant end = emfStep.getEndTime();
+        Instant ready = readyAt;
+        if (ready != null && ready.isAfter(end)) {
+            end = ready;
+        }
+        return Duration.between(emfStep.getStartTime(), end);
+    }
+
+    private static class ReadyObserver implements SessionFactoryObserver {
+
+        private final transient JpaBootstrapTimer timer;
+
+        ReadyObserver(JpaBootstrapTimer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public void sessionFactoryCreated(SessionFactory factory) {
+            if (timer != null) {
+                timer.markReady();
+            }
+        }
+
+        @Override
+        public void sessionFactoryClosed(SessionFactory factory) {
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package study.querydsl.startup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 배포 직후 첫 요청들이 느린 것(HQL 실행계획 캐시, H2 statement 캐시, JIT)을 막기 위해 기동 중에 조회를 미리 돌린다.
+ * ApplicationRunner 는 readiness(ACCEPTING_TRAFFIC) 전에 실행되므로, 끝날 때까지 트래픽을 받지 않는다.
+ *
+ * MemberSearchCondition 의 모든 조합(16가지) x 페이지 방식(simple/complex, 첫 페이지/다음 페이지) x 컬럼 x 정렬을
+ * size 1 로 실행한다. 조건 값은 결과가 없도록(팀 이름만 실제 값) 줘서 count 쿼리도 싸게 끝난다.
+ * 팀이 아직 없으면 없는 팀 이름을 쓴다. 회원 쿼리는 건너뛰지만 팀 이름 -> id 조회(TeamNameResolver)는 데운다.
+ * 한 바퀴 시간이 직전과 tolerance 안으로 비슷해지면(steady state) 멈추고, 거기까지 걸린 시간을 남긴다.
+ *
+ * local 프로파일의 InitMember 는 @PostConstruct 에서 넣으므로 이보다 먼저 끝난다.
+ * fast 프로파일은 ApplicationReadyEvent 뒤에 넣으므로 warm-up 을 끈다. (application-fast.yml)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "study.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class SearchWarmup implements ApplicationRunner {
+
+    private static final String NO_SUCH_USERNAME = "warmup-no-such-member";
+    private static final String NO_SUCH_TEAM = "warmup-no-such-team";
+    private static final Set<MemberField> FIELDS_WITHOUT_TEAM_NAME =
+            EnumSet.of(MemberField.MEMBER_ID, MemberField.USERNAME, MemberField.AGE, MemberField.TEAM_ID);
+    private static final List<Sort> SORTS = List.of(Sort.unsorted(), Sort.by("username"), Sort.by("teamName"));
+
+    private final MemberRepository memberRepository;
+    private final MemberJpaRepository memberJpaRepository;
+    private final EntityManager em;
+    private final ApplicationAvailability availability;
+    private final int minIterations;
+    private final int maxIterations;
+    private final double tolerance;
+
+    private volatile long steadyStateMillis = -1;
+    private volatile int iterations;
+    private volatile ReadinessState readinessWhenDone; // 끝났을 때 아직 트래픽을 안 받고 있었는지
+
+    public SearchWarmup(MemberRepository memberRepository,
+                        MemberJpaRepository memberJpaRepository,
+                        EntityManager em,
+                        ApplicationAvailability availability,
+                        MeterRegistry registry,
+                        @Value("${study.warmup.min-iterations:3}") int minIterations,
+                        @Value("${study.warmup.max-iterations:10}") int maxIterations,
+                        @Value("${study.warmup.tolerance:0.1}") double tolerance) {
+        this.memberRepository = memberRepository;
+        this.memberJpaRepository = memberJpaRepository;
+        this.em = em;
+        this.availability = availability;
+        this.minIterations = minIterations;
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+
+        Gauge.builder("application.warmup.steady-state", this, warmup -> warmup.steadyStateMillis)
+                .description("time until one warm-up round took as long as the previous one (ms, -1: not reached)")
+                .register(registry);
+        Gauge.builder("application.warmup.iterations", this, warmup -> warmup.iterations)
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<MemberSearchCondition> shapes = shapes(anyTeamName());
+        long start = System.nanoTime();
+        long previous = -1;
+        StringBuilder report = new StringBuilder("search warm-up (" + shapes.size() + " condition shapes)");
+        for (int i = 1; i <= maxIterations; i++) {
+            long roundStart = System.nanoTime();
+            for (MemberSearchCondition condition : shapes) {
+                runShape(condition);
+            }
+            long round = System.nanoTime() - roundStart;
+            iterations = i;
+            report.append(String.format("%n  round %2d %6d ms", i, round / 1_000_000));
+
+            if (i >= minIterations && previous > 0 && Math.abs(round - previous) <= previous * tolerance) {
+                steadyStateMillis = (System.nanoTime() - start) / 1_000_000;
+                break;
+            }
+            previous = round;
+        }
+        report.append(steadyStateMillis >= 0
+                ? String.format("%n  steady state after %d ms", steadyStateMillis)
+                : String.format("%n  no steady state within %d rounds", maxIterations));
+        log.info(report.toString());
+        readinessWhenDone = availability.getReadinessState();
+    }
+
+    private void runShape(MemberSearchCondition condition) {
+        // 목록 조회는 limit 이 없으므로 결과가 없는 조건(username, 나이)이 있을 때만 돌린다. (조건 없음, 팀 이름만은 건너뛴다)
+        if (condition.getUsername() != null || condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            memberRepository.search(condition, MemberField.ALL);
+            memberJpaRepository.search(condition, MemberField.ALL);
+        }
+        for (Set<MemberField> fields : List.of(MemberField.ALL, FIELDS_WITHOUT_TEAM_NAME)) {
+            for (Sort sort : SORTS) {
+                for (int page = 0; page <= 1; page++) { // offset 이 0 이면 SQL 에 offset 이 빠진다.
+                    Pageable pageable = PageRequest.of(page, 1, sort);
+                    memberRepository.searchPageSimple(condition, pageable, fields);
+                    memberRepository.searchPageComplex(condition, pageable, fields);
+                }
+            }
+        }
+    }
+
+    /** username, teamName, ageGoe, ageLoe 각각 있고 없고. */
+    static List<MemberSearchCondition> shapes(String teamName) {
+        List<MemberSearchCondition> shapes = new ArrayList<>();
+        for (int mask = 0; mask < 16; mask++) {
+            shapes.add(new MemberSearchCondition(
+                    (mask & 1) != 0 ? NO_SUCH_USERNAME : null,
+                    (mask & 2) != 0 ? teamName : null,
+                    (mask & 4) != 0 ? Integer.MAX_VALUE : null,
+                    (mask & 8) != 0 ? Integer.MIN_VALUE : null));
+        }
+        return shapes;
+    }
+
+    private String anyTeamName() {
+        List<String> names = em.createQuery("select t.name from Team t", String.class)
+                .setMaxResults(1)
+                .getResultList();
+        return names.isEmpty() ? NO_SUCH_TEAM : names.get(0);
+    }
+
+    long getSteadyStateMillis() {
+        return steadyStateMillis;
+    }
+
+    ReadinessState getReadinessWhenDone() {
+        return readinessWhenDone;
+    }
+}
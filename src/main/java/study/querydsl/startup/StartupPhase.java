@@ -0,0 +1,46 @@
+package study.querydsl.startup;
+
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.core.metrics.StartupStep;
+
+/**
+ * 기동 리포트에 따로 보여줄 단계. StartupStep 이름(과 태그)으로 찾는다.
+ */
+enum StartupPhase {
+
+    ENVIRONMENT("environment", "spring.boot.application.environment-prepared", null),
+    COMPONENT_SCAN("component-scan", "spring.context.config-classes.parse", null),
+    BEAN_FACTORY_POST_PROCESS("bean-factory-post-process", "spring.context.beans.post-process", null),
+    // Hibernate 메타모델 + 스키마 생성/검증. deferred 부트스트랩이면 빈 생성 뒤에도 계속되므로 끝은 JpaBootstrapTimer 가 정한다.
+    JPA_BOOTSTRAP("jpa-bootstrap", "spring.beans.instantiate", "entityManagerFactory"),
+    CONTEXT_REFRESH("context-refresh", "spring.context.refresh", null);
+
+    private final String tag;
+    private final String stepName;
+    private final String beanName;
+
+    StartupPhase(String tag, String stepName, String beanName) {
+        this.tag = tag;
+        this.stepName = stepName;
+        this.beanName = beanName;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    boolean matches(StartupTimeline.TimelineEvent event) {
+        if (!stepName.equals(event.getStartupStep().getName())) {
+            return false;
+        }
+        if (beanName == null) {
+            return true;
+        }
+        for (StartupStep.Tag stepTag : event.getStartupStep().getTags()) {
+            if ("beanName".equals(stepTag.getKey()) && beanName.equals(stepTag.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+package study.querydsl.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * 기동이 끝나면(ApplicationReadyEvent) 단계별 소요 시간을 로그로 남기고
+ * application.startup.phase 타이머(phase 태그)로 기록한다. 어느 단계가 느려졌는지 배포마다 비교하는 용도.
+ *
+ * QuerydslApplication.main 에서 BufferingApplicationStartup 을 설정했을 때만 동작한다.
+ * 테스트(@SpringBootTest)처럼 기본 ApplicationStartup 으로 뜨면 아무것도 하지 않는다.
+ */
+@Slf4j
+@Component
+public class StartupPhaseReport {
+
+    private static final int SLOWEST_BEANS = 5;
+
+    private final ApplicationStartup applicationStartup;
+    private final MeterRegistry registry;
+    private final JpaBootstrapTimer jpaBootstrapTimer;
+
+    public StartupPhaseReport(ApplicationStartup applicationStartup, MeterRegistry registry, JpaBootstrapTimer jpaBootstrapTimer) {
+        this.applicationStartup = applicationStartup;
+        this.registry = registry;
+        this.jpaBootstrapTimer = jpaBootstrapTimer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+            return;
+        }
+        // getBufferedTimeline 은 버퍼를 비우지 않는다. (/actuator/startup 은 drain 할 수 있음)
+        StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+
+        Map<StartupPhase, Duration> phases = new EnumMap<>(StartupPhase.class);
+        for (StartupTimeline.TimelineEvent event : events) {
+            for (StartupPhase phase : StartupPhase.values()) {
+                if (phase.matches(event)) {
+                    Duration duration = phase == StartupPhase.JPA_BOOTSTRAP
+                            ? jpaBootstrapTimer.durationFrom(event) : event.getDuration();
+                    phases.merge(phase, duration, Duration::plus);
+                }
+            }
+        }
+        Duration ready = Duration.between(timeline.getStartTime(), Instant.now());
+
+        StringBuilder report = new StringBuilder("startup phases");
+        phases.forEach((phase, duration) -> {
+            report.append(String.format("%n  %-26s %6d ms", phase.tag(), duration.toMillis()));
+            record(phase.tag(), duration);
+        });
+        report.append(String.format("%n  %-26s %6d ms", "ready", ready.toMillis()));
+        record("ready", ready);
+
+        report.append(String.format("%n  slowest beans:"));
+        events.stream()
+                .filter(event -> "spring.beans.instantiate".equals(event.getStartupStep().getName()))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(SLOWEST_BEANS)
+                .forEach(event -> report.append(String.format("%n    %-40s %6d ms",
+                        beanName(event), event.getDuration().toMillis())));
+        log.info(report.toString());
+    }
+
+    private void record(String phase, Duration duration) {
+        Timer.builder("application.startup.phase")
+                .tag("phase", phase)
+                .register(registry)
+                .record(duration);
+    }
+
+    private static String beanName(StartupTimeline.TimelineEvent event) {
+        return StreamSupport.stream(event.getStartupStep().getTags().spliterator(), false)
+                .filter(tag -> "beanName".equals(tag.getKey()))
+                .map(StartupStep.Tag::getValue)
+                .collect(Collectors.joining());
+    }
+}
@@ -0,0 +1,36 @@
+package study.querydsl.timeout;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.dao.QueryTimeoutException;
+
+import javax.persistence.EntityManager;
+
+/**
+ * select/selectFrom 으로 만드는 모든 JPAQuery 에 요청의 남은 시간을 javax.persistence.query.timeout 힌트로 건다.
+ * 요청 밖(QueryDeadline 이 없을 때)에서는 JPAQueryFactory 와 같다.
+ */
+public class DeadlineJPAQueryFactory extends JPAQueryFactory {
+
+    static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    public DeadlineJPAQueryFactory(EntityManager em) {
+        super(em);
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        JPAQuery<?> query = super.query();
+        QueryDeadline deadline = QueryDeadline.current();
+        if (deadline == null) {
+            return query;
+        }
+        long remaining = deadline.remainingMillis();
+        if (remaining <= 0) {
+            throw new QueryTimeoutException("deadline exceeded before query: " + deadline.getEndpoint());
+        }
+        // 하이버네이트가 초 단위로 반올림하므로 0(제한 없음)이 되지 않게 최소 1초. 값은 Integer 만 받는다.
+        query.setHint(TIMEOUT_HINT, (int) Math.min(Math.max(remaining, 1000), Integer.MAX_VALUE));
+        return query;
+    }
+}
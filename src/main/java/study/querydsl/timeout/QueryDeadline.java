@@ -0,0 +1,120 @@
+package study.querydsl.timeout;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 요청 하나의 마감 시각과, 그 요청이 연 JDBC Statement 목록. QueryDeadlineFilter 가 요청 스레드에 걸어둔다.
+ * 쿼리는 남은 시간만큼만 실행하고(DeadlineJPAQueryFactory), 마감이 지나도 끝나지 않으면 QueryDeadlineWatchdog 가 cancel 한다.
+ */
+public final class QueryDeadline {
+
+    private static final ThreadLocal<QueryDeadline> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final long deadlineNanos;
+    private final List<Statement> statements = new ArrayList<>(); // this 로 동기화
+    private volatile boolean cancelled;
+
+    private QueryDeadline(String endpoint, long timeoutMillis) {
+        this.endpoint = endpoint;
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000;
+    }
+
+    static QueryDeadline start(String endpoint, long timeoutMillis) {
+        QueryDeadline deadline = new QueryDeadline(endpoint, timeoutMillis);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /** 요청 스레드가 아니면(스케줄러, 다른 스레드 풀) null. 다른 스레드에 넘길 때는 callWithin */
+    public static QueryDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 다른 스레드(ForkJoinPool, scatter 스레드)에서 task 를 이 마감 안에서 실행한다.
+     * ThreadLocal 은 물려받지 않으므로 요청 스레드에서 current() 를 잡아 두었다가 넘긴다. deadline 이 null 이면 그냥 실행.
+     */
+    public static <T> T callWithin(QueryDeadline deadline, Supplier<T> task) {
+        if (deadline == null) {
+            return task.get();
+        }
+        QueryDeadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void runWithin(QueryDeadline deadline, Runnable task) {
+        callWithin(deadline, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /** 음수면 이미 지났다. */
+    public long remainingMillis() {
+        return (deadlineNanos - System.nanoTime()) / 1_000_000;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    synchronized void register(Statement statement) throws SQLException {
+        if (cancelled) {
+            statement.cancel(); // cancel 한 뒤에 새로 시작하는 쿼리
+        }
+        statements.removeIf(QueryDeadline::closed);
+        statements.add(statement);
+    }
+
+    /** 아직 닫히지 않은 Statement 를 모두 cancel 한다. cancel 한 개수를 돌려준다. */
+    int cancel() {
+        List<Statement> running;
+        synchronized (this) {
+            cancelled = true;
+            running = new ArrayList<>(statements);
+        }
+        int count = 0;
+        for (Statement statement : running) {
+            if (closed(statement)) {
+                continue;
+            }
+            try {
+                statement.cancel(); // 다른 스레드에서 불러도 된다. 실행 중인 쿼리는 SQLState 57014 로 끝난다.
+                count++;
+            } catch (SQLException e) {
+                // 그 사이에 끝났으면 무시
+            }
+        }
+        return count;
+    }
+
+    private static boolean closed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
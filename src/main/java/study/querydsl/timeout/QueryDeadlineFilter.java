@@ -0,0 +1,99 @@
+package study.querydsl.timeout;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+/**
+ * 요청마다 마감 시각(QueryDeadline)을 정한다. 경로별 제한 시간(study.query-timeout.endpoints)과
+ * 클라이언트가 보낸 X-Request-Timeout-Ms 중 짧은 쪽. 그 안에 끝나지 않은 쿼리는 503 으로 돌려준다.
+ *
+ * 주의: 서블릿 API 는 블로킹 요청 도중에 클라이언트가 연결을 끊었는지 알려주지 않는다. (응답을 쓸 때 실패해야 안다)
+ * 그래서 끊긴 요청의 쿼리도 마감 시각까지만 돌고 멈춘다. 클라이언트는 자기 타임아웃을 헤더로 보내서 그보다 오래 돌지 않게 한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryDeadlineFilter extends OncePerRequestFilter {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+    private static final String QUERY_CANCELED_SQL_STATE = "57014";
+
+    private final QueryTimeoutProperties properties;
+    private final QueryDeadlineWatchdog watchdog;
+    private final MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String endpoint = properties.endpointOf(request.getRequestURI());
+        long timeout = timeoutMillis(endpoint, request.getHeader(TIMEOUT_HEADER));
+        if (timeout <= 0) { // 제한 없음. (/members/bulk 는 배치마다 트랜잭션 timeout 을 건다)
+            filterChain.doFilter(request, response);
+            return;
+        }
+        QueryDeadline deadline = QueryDeadline.start(endpoint, timeout);
+        watchdog.watch(deadline);
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | RuntimeException e) {
+            if (!isQueryTimeout(e)) {
+                throw e;
+            }
+            if (!deadline.isCancelled()) { // cancel 은 watchdog 이 셌다.
+                registry.counter("member.query.timeout", "endpoint", endpoint).increment();
+            }
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "query timeout");
+            }
+        } finally {
+            watchdog.unwatch(deadline);
+            QueryDeadline.clear();
+        }
+    }
+
+    private long timeoutMillis(String endpoint, String requested) {
+        long timeout = properties.timeoutOf(endpoint);
+        if (requested != null) {
+            try {
+                long clientTimeout = Long.parseLong(requested.trim());
+                if (clientTimeout > 0) {
+                    timeout = timeout <= 0 ? clientTimeout : Math.min(timeout, clientTimeout);
+                }
+            } catch (NumberFormatException e) {
+                // 잘못된 헤더는 무시하고 서버 설정을 쓴다.
+            }
+        }
+        return timeout;
+    }
+
+    /** 스프링/JPA/하이버네이트가 각자 감싸므로 원인을 따라가며 확인한다. */
+    public static boolean isQueryTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof org.springframework.dao.QueryTimeoutException
+                    || cause instanceof javax.persistence.QueryTimeoutException
+                    || cause instanceof org.hibernate.QueryTimeoutException
+                    || cause instanceof SQLTimeoutException
+                    || (cause instanceof SQLException && QUERY_CANCELED_SQL_STATE.equals(((SQLException) cause).getSQLState()))) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package study.querydsl.timeout;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 마감이 지나고도 grace 이상 돌고 있는 요청의 Statement 를 cancel 한다.
+ * 힌트가 걸리지 않는 쿼리(JdbcTemplate, 쿼리 메소드)나 드라이버가 제한 시간을 늦게 확인하는 경우를 막는다.
+ *
+ * @Scheduled 스레드(bloom rebuild 같은 긴 작업과 같이 쓴다)에 밀려 cancel 이 늦어지지 않도록 전용 스레드에서 돈다.
+ */
+@Slf4j
+@Component
+public class QueryDeadlineWatchdog {
+
+    private final QueryTimeoutProperties properties;
+    private final MeterRegistry registry;
+    private final Set<QueryDeadline> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "query-deadline-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public QueryDeadlineWatchdog(QueryTimeoutProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        long interval = properties.getWatchdogIntervalMs();
+        timer.scheduleWithFixedDelay(this::cancelExpiredQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void watch(QueryDeadline deadline) {
+        active.add(deadline);
+    }
+
+    void unwatch(QueryDeadline deadline) {
+        active.remove(deadline);
+    }
+
+    public void cancelExpired() {
+        for (QueryDeadline deadline : active) {
+            if (!deadline.isCancelled() && deadline.remainingMillis() < -properties.getWatchdogGraceMs()) {
+                int cancelled = deadline.cancel();
+                registry.counter("member.query.cancelled", "endpoint", deadline.getEndpoint()).increment(cancelled);
+            }
+        }
+    }
+
+    private void cancelExpiredQuietly() {
+        try {
+            cancelExpired();
+        } catch (RuntimeException e) {
+            log.warn("query deadline watchdog failed", e); // 예외가 나가면 다음 실행이 취소된다.
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.timeout;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(QueryTimeoutProperties.class)
+public class QueryTimeoutConfig {
+
+    /** p6spy 와 같은 방식(datasource-decorator)으로 DataSource 를 감싸서, 요청마다 실행 중인 Statement 를 모은다. */
+    @Bean
+    public DataSourceDecorator statementTrackingDataSourceDecorator() {
+        return (beanName, dataSource) -> new StatementTrackingDataSource(dataSource);
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.timeout;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter @Setter
+@ConfigurationProperties("study.query-timeout")
+public class QueryTimeoutProperties {
+
+    private boolean enabled = true;
+    private long defaultMs = 5000;
+    private Map<String, Long> endpoints = new LinkedHashMap<>(); // 요청 경로 -> 제한 시간(ms). 없으면 defaultMs, 0 이면 제한 없음
+    private long watchdogIntervalMs = 200;
+    private long watchdogGraceMs = 1000; // 드라이버가 제한 시간을 지키지 못할 때(초 단위 반올림, 힌트 없는 JDBC 쿼리) 기다려 주는 시간
+
+    /** 메트릭 태그로도 쓰므로 설정에 있는 경로가 아니면 "default" */
+    String endpointOf(String path) {
+        return endpoints.containsKey(path) ? path : "default";
+    }
+
+    long timeoutOf(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultMs);
+    }
+}
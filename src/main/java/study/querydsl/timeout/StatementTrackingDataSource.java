@@ -0,0 +1,51 @@
+package study.querydsl.timeout;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** Connection 에서 만든 Statement 를 현재 요청의 QueryDeadline 에 등록한다. 요청 밖(스케줄러 등)에서는 그대로 통과. */
+class StatementTrackingDataSource extends DelegatingDataSource {
+
+    StatementTrackingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    private Connection track(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                    QueryDeadline deadline = QueryDeadline.current();
+                    if (deadline != null && result instanceof Statement) { // createStatement, prepareStatement, prepareCall
+                        deadline.register((Statement) result);
+                    }
+                    return result;
+                });
+    }
+}
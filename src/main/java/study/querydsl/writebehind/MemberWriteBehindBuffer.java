@@ -0,0 +1,188 @@
+package study.querydsl.writebehind;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityChangePublisher;
+import study.querydsl.event.EntityType;
+
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 회원 나이/팀 변경 write-behind 버퍼. (study.write-behind.enabled=true 일 때만 등록)
+ *
+ * 같은 회원의 변경은 id 별로 하나로 합쳐 두었다가, batch-size 만큼 쌓이거나 flush-interval 이 지나면
+ * 영속성 컨텍스트를 거치지 않고 JDBC batch update 한 번으로 쓴다.
+ * 따라서 이미 영속성 컨텍스트에 올라와 있는 Member 엔티티에는 반영되지 않는다.
+ *
+ * 이 저장소 안에는 호출하는 곳이 없다. 나이/팀을 자주 바꾸는 수집 코드가 주입받아 updateAge/changeTeam 을 부르는 용도다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "study.write-behind.enabled", havingValue = "true")
+public class MemberWriteBehindBuffer {
+
+    private static final String UPDATE_SQL =
+            "update member set age = coalesce(?, age), team_id = case when ? then ? else team_id end where member_id = ?";
+
+    // ConcurrentHashMap: 버킷 단위로 나뉘어 있어서 서로 다른 회원의 merge 는 경합하지 않는다.
+    private final Map<Long, PendingMemberUpdate> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "member-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityChangePublisher changePublisher;
+    private final int batchSize;
+    private final WriteBehindDurability durability;
+
+    private final Counter enqueued;
+    private final Counter written;
+
+    public MemberWriteBehindBuffer(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   EntityChangePublisher changePublisher,
+                                   MeterRegistry registry,
+                                   @Value("${study.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${study.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+                                   @Value("${study.write-behind.durability:MEMORY}") WriteBehindDurability durability) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.changePublisher = changePublisher;
+        this.batchSize = batchSize;
+        this.durability = durability;
+
+        this.enqueued = registry.counter("member.write-behind.enqueued");
+        this.written = registry.counter("member.write-behind.written");
+        Gauge.builder("member.write-behind.queue-depth", pending, Map::size)
+                .register(registry);
+        // 합치기 비율: 들어온 변경 수 / 실제로 쓴 row 수
+        Gauge.builder("member.write-behind.coalescing-ratio", this, MemberWriteBehindBuffer::coalescingRatio)
+                .register(registry);
+
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void updateAge(Long memberId, int age) {
+        enqueue(memberId, PendingMemberUpdate.age(age));
+    }
+
+    public void changeTeam(Long memberId, Long teamId) {
+        enqueue(memberId, PendingMemberUpdate.team(teamId));
+    }
+
+    private void enqueue(Long memberId, PendingMemberUpdate update) {
+        enqueued.increment();
+        if (durability == WriteBehindDurability.WRITE_THROUGH) {
+            write(List.of(memberId), List.of(update));
+            return;
+        }
+        pending.merge(memberId, update, PendingMemberUpdate::merge);
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly); // 호출한 스레드에서 쓰지 않는다.
+        }
+    }
+
+    /** 쌓인 변경을 모두 쓴다. 타이머, 크기 조건, 종료 시 호출된다. */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        while (!pending.isEmpty()) {
+            List<Long> ids = new ArrayList<>(batchSize);
+            List<PendingMemberUpdate> updates = new ArrayList<>(batchSize);
+            for (Long id : pending.keySet()) {
+                PendingMemberUpdate update = pending.remove(id); // 꺼내는 순간 이후 변경은 다음 flush 로 간다.
+                if (update != null) {
+                    ids.add(id);
+                    updates.add(update);
+                }
+                if (ids.size() == batchSize) {
+                    break;
+                }
+            }
+            try {
+                write(ids, updates);
+            } catch (RuntimeException e) {
+                // 실패한 변경은 되돌려 놓는다. 그 사이 들어온 변경이 더 최신이므로 그쪽이 이긴다.
+                for (int i = 0; i < ids.size(); i++) {
+                    pending.merge(ids.get(i), updates.get(i), (newer, failed) -> failed.merge(newer));
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void write(List<Long> ids, List<PendingMemberUpdate> updates) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    PendingMemberUpdate update = updates.get(i);
+                    ps.setObject(1, update.getAge(), Types.INTEGER);
+                    ps.setBoolean(2, update.isTeamChanged());
+                    ps.setObject(3, update.getTeamId(), Types.BIGINT);
+                    ps.setLong(4, ids.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return ids.size();
+                }
+            });
+            // row 마다 이벤트를 내지 않고 EntityChangeBatchEvent 하나로 낸다. (캐시 무효화, DataVersion 증가도 한 번)
+            List<EntityChangeEvent> events = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                events.add(new EntityChangeEvent(EntityType.MEMBER, id, ChangeType.UPDATE, null));
+            }
+            changePublisher.publishAll(events);
+        });
+        written.increment(ids.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("write-behind flush failed, {} updates pending", pending.size(), e);
+        }
+    }
+
+    private double coalescingRatio() {
+        double writtenCount = written.count();
+        return writtenCount == 0 ? 0 : enqueued.count() / writtenCount;
+    }
+
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /** 종료 훅: 타이머를 멈추고 남은 변경을 모두 쓴다. */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+}
@@ -0,0 +1,36 @@
+package study.querydsl.writebehind;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/** 아직 DB 에 쓰지 않은 회원 변경분. 같은 회원의 변경은 merge 로 하나로 합친다. (나중 값이 이긴다) */
+@Getter
+@ToString
+class PendingMemberUpdate {
+
+    private final Integer age;        // null 이면 나이는 바꾸지 않는다.
+    private final boolean teamChanged;
+    private final Long teamId;        // teamChanged 일 때만 의미가 있다. null 이면 팀 없음.
+
+    private PendingMemberUpdate(Integer age, boolean teamChanged, Long teamId) {
+        this.age = age;
+        this.teamChanged = teamChanged;
+        this.teamId = teamId;
+    }
+
+    static PendingMemberUpdate age(int age) {
+        return new PendingMemberUpdate(age, false, null);
+    }
+
+    static PendingMemberUpdate team(Long teamId) {
+        return new PendingMemberUpdate(null, true, teamId);
+    }
+
+    /** this 가 먼저, newer 가 나중 변경 */
+    PendingMemberUpdate merge(PendingMemberUpdate newer) {
+        return new PendingMemberUpdate(
+                newer.age != null ? newer.age : age,
+                teamChanged || newer.teamChanged,
+                newer.teamChanged ? newer.teamId : teamId);
+    }
+}
@@ -0,0 +1,8 @@
+package study.querydsl.writebehind;
+
+public enum WriteBehindDurability {
+    /** 메모리에 쌓아두고 크기/시간 조건으로 한 번에 쓴다. 종료 시에는 flush 하지만 프로세스가 죽으면 유실된다. */
+    MEMORY,
+    /** 버퍼를 거치지 않고 바로 쓴다. 유실이 허용되지 않는 환경에서 버퍼를 끄는 용도. */
+    WRITE_THROUGH
+}
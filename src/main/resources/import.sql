@@ -0,0 +1,8 @@
+-- ddl-auto: create 일 때 하이버네이트가 테이블을 만든 뒤 실행한다. (한 줄에 한 문장)
+-- row_version: insert/update 마다 DB 가 시퀀스 값을 채운다. 벌크 update, JDBC update 도 빠지지 않게 컬럼 기본값/on update 로 둔다.
+create sequence if not exists row_version_seq
+alter table member alter column row_version set default next value for row_version_seq
+alter table member alter column row_version set on update next value for row_version_seq
+alter table team alter column row_version set default next value for row_version_seq
+alter table team alter column row_version set on update next value for row_version_seq
+alter table tombstone alter column row_version set default next value for row_version_seq
@@ -12,8 +12,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberDtoProjection;
 import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.UserDto;
+import study.querydsl.dto.UserDtoProjection;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
@@ -23,6 +25,7 @@ import javax.persistence.TypedQuery;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static study.querydsl.entity.QMember.member;
 
 @Slf4j
@@ -172,6 +175,25 @@ public class QuerydslProjectionTest { /** [중급 문법] */
         }
     }
 
+    @Test
+    public void findDtoByGeneratedProjection(){
+        /** 생성자에 @GeneratedProjection 을 붙이면 컴파일할 때 UserDtoProjection 이 생긴다.
+         *  select 순서대로 생성자를 직접 호출하므로 리플렉션, alias(.as("name")) 가 필요 없다.
+         * */
+        List<UserDto> users = queryFactory
+                .select(new UserDtoProjection(member.username, member.age))
+                .from(member)
+                .fetch();
+        assertThat(users).extracting("name").contains("member1");
+
+        List<MemberDto> members = queryFactory
+                .select(new MemberDtoProjection(member.username, member.age.max())) // max(int) 도 int 로 받는다.
+                .from(member)
+                .groupBy(member.username)
+                .fetch();
+        assertThat(members).hasSameSizeAs(users);
+    }
+
     @BeforeEach // @Test 실행 전 마다 데이터 미리 세팅하기
     public void before(){
 
@@ -0,0 +1,48 @@
+package study.querydsl.bloom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    public void noFalseNegatives(){
+        BloomFilter filter = BloomFilter.create(100_000, 0.01, 1 << 20);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("member" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(filter.mightContain("member" + i)).isTrue();
+        }
+    }
+
+    @Test
+    public void falsePositiveRate(){
+        BloomFilter filter = BloomFilter.create(100_000, 0.01, 1 << 20);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("member" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("nobody" + i)) {
+                falsePositives++;
+            }
+        }
+        // 목표 1%. 해시 품질이 나쁘면 여기서 크게 벗어난다.
+        assertThat(falsePositives / 100_000.0).isLessThan(0.015);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    public void memoryBudget(){
+        // 1% 라면 약 120KB 가 필요하지만 16KB 로 자른다. 오탐률이 올라간다.
+        BloomFilter filter = BloomFilter.create(100_000, 0.01, 16 * 1024);
+        assertThat(filter.bitSize() / 8).isEqualTo(16 * 1024);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("member" + i);
+        }
+        assertThat(filter.mightContain("member1")).isTrue();
+        assertThat(filter.expectedFalsePositiveRate()).isGreaterThan(0.1);
+    }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.bloom;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CyclicBarrier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커밋 전 username 을 넣는 put 과 rebuild 를 동시에 돌린다.
+ * member 테이블은 비어 있는 것으로 두므로, rebuild 가 끝난 filter 에 이름이 있으려면 put 이 새 filter 에 넣었거나
+ * rebuild 가 inFlight 에서 읽었어야 한다.
+ */
+class UsernameBloomFilterRaceTest {
+
+    static final int ROUNDS = 500;
+
+    @SuppressWarnings("unchecked")
+    JdbcTemplate emptyMember = new JdbcTemplate() {
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            return (T) Long.valueOf(0);
+        }
+
+        @Override
+        public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+        }
+    };
+
+    UsernameBloomFilter filter = new UsernameBloomFilter(emptyMember, new SimpleMeterRegistry(),
+            0.01, 1024 * 1024, 2.0, 10_000, false);
+
+    @Test
+    public void uncommittedPutSurvivesConcurrentRebuild() throws Exception {
+        filter.rebuild();
+        for (int round = 0; round < ROUNDS; round++) {
+            String username = "race" + round;
+            CyclicBarrier start = new CyclicBarrier(2);
+            Thread rebuild = new Thread(() -> {
+                await(start);
+                filter.rebuild();
+            });
+            rebuild.start();
+
+            TransactionSynchronizationManager.initSynchronization(); // 쓰기 트랜잭션 안인 것처럼
+            try {
+                await(start);
+                filter.put(username);
+                rebuild.join();
+
+                assertThat(filter.mightContain(username)).as(username).isTrue();
+            } finally {
+                for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+                }
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package study.querydsl.bloom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class UsernameBloomFilterTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired UsernameBloomFilter usernameBloomFilter;
+
+    @Test
+    public void putOnInsertAndShedOnRebuild(){
+        usernameBloomFilter.rebuild();
+        assertThat(usernameBloomFilter.mightContain("bloom1")).isFalse();
+
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("bloom1", 10)));
+        assertThat(usernameBloomFilter.mightContain("bloom1")).isTrue();
+
+        jdbcTemplate.update("delete from member where username = ?", "bloom1");
+        usernameBloomFilter.rebuild(); // 삭제는 rebuild 로만 빠진다.
+        assertThat(usernameBloomFilter.mightContain("bloom1")).isFalse();
+    }
+
+    @Test
+    public void rebuildKeepsUncommittedInserts(){
+        usernameBloomFilter.rebuild();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("bloom2", 10));
+            em.flush(); // 이벤트 발행 → filter 에 들어간다. 아직 커밋 전.
+
+            // 다른 스레드의 rebuild 스캔에는 커밋 전 row 가 보이지 않는다.
+            Thread rebuild = new Thread(usernameBloomFilter::rebuild);
+            rebuild.start();
+            try {
+                rebuild.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            assertThat(usernameBloomFilter.mightContain("bloom2")).isTrue();
+        });
+        assertThat(usernameBloomFilter.mightContain("bloom2")).isTrue();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        jdbcTemplate.update("delete from member");
+    }
+}
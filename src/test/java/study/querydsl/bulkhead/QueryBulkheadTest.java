@@ -0,0 +1,47 @@
+package study.querydsl.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryBulkheadTest {
+
+    QueryClassifier classifier = new QueryClassifier(500, 10000);
+
+    @Test
+    public void classify(){
+        // 조건 없는 전체 조회는 HEAVY
+        assertThat(classifier.classify(new MemberSearchCondition())).isEqualTo(QueryClass.HEAVY);
+        assertThat(classifier.classify(new MemberSearchCondition(null, "teamA", null, null)))
+                .isEqualTo(QueryClass.INTERACTIVE);
+
+        // 페이지 크기, offset 기준
+        MemberSearchCondition empty = new MemberSearchCondition();
+        assertThat(classifier.classify(empty, PageRequest.of(0, 20))).isEqualTo(QueryClass.INTERACTIVE);
+        assertThat(classifier.classify(empty, PageRequest.of(0, 1000))).isEqualTo(QueryClass.HEAVY);
+        assertThat(classifier.classify(empty, PageRequest.of(1000, 20))).isEqualTo(QueryClass.HEAVY);
+
+        // id 배치 조회는 id 수 기준
+        assertThat(classifier.classifyBatch(100)).isEqualTo(QueryClass.INTERACTIVE);
+        assertThat(classifier.classifyBatch(5000)).isEqualTo(QueryClass.HEAVY);
+    }
+
+    @Test
+    public void heavyFullDoesNotBlockInteractive(){
+        QueryBulkhead bulkhead = new QueryBulkhead(1, 0, 1, 0, new SimpleMeterRegistry());
+
+        // HEAVY 자리를 차지한 상태에서
+        bulkhead.execute(QueryClass.HEAVY, () -> {
+            // 다른 HEAVY 는 거절되고
+            assertThatThrownBy(() -> bulkhead.execute(QueryClass.HEAVY, () -> "heavy"))
+                    .isInstanceOf(BulkheadFullException.class);
+            // INTERACTIVE 는 그대로 실행된다.
+            assertThat(bulkhead.execute(QueryClass.INTERACTIVE, () -> "interactive")).isEqualTo("interactive");
+            return null;
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package study.querydsl.changelog;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityType;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** 스케줄러 대신 poll() 을 직접 부른다. 다른 노드의 기록은 node_id 를 바꿔서 JDBC 로 넣는다. */
+@SpringBootTest(properties = "study.change-log.poll-interval-ms=3600000")
+@RecordApplicationEvents
+class ChangeLogPollerTest {
+
+    static final String INSERT_SQL =
+            "insert into change_log (node_id, entity_type, entity_id, change_type, name, created_at) values ('other', ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired ChangeLogPoller poller;
+    @Autowired ApplicationEvents events;
+
+    @BeforeEach
+    public void catchUp(){
+        poller.poll(); // 이전 테스트의 기록까지 읽어 둔다.
+        events.clear();
+    }
+
+    @Test
+    public void localWritesAreLoggedButNotReapplied(){
+        Long teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            return team.getId();
+        });
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from change_log where entity_type = 'TEAM' and entity_id = ?", Long.class, teamId))
+                .isEqualTo(1); // 같은 트랜잭션에서 기록
+
+        events.clear();
+        poller.poll();
+        assertThat(events.stream(EntityChangeEvent.class)).isEmpty(); // 자기 노드의 기록
+    }
+
+    @Test
+    public void remoteWritesArePublished(){
+        jdbcTemplate.update(INSERT_SQL, "TEAM", 1L, "UPDATE", "teamA", System.currentTimeMillis());
+        jdbcTemplate.update(INSERT_SQL, "MEMBER", 2L, "DELETE", "member1", System.currentTimeMillis());
+
+        poller.poll();
+
+        assertThat(events.stream(EntityChangeEvent.class))
+                .extracting("entityType", "id", "changeType", "name", "remote")
+                .containsExactly(
+                        tuple(EntityType.TEAM, 1L, ChangeType.UPDATE, "teamA", true),
+                        tuple(EntityType.MEMBER, 2L, ChangeType.DELETE, "member1", true));
+    }
+
+    /** 먼저 insert 하고 늦게 커밋한 기록(작은 id)도 놓치지 않는다. */
+    @Test
+    public void lateCommitFillsGap() throws InterruptedException {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Thread slowWriter = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(INSERT_SQL, "TEAM", 10L, "UPDATE", "slow", System.currentTimeMillis());
+            inserted.countDown();
+            await(commit);
+        }));
+        slowWriter.start();
+        inserted.await(5, TimeUnit.SECONDS);
+
+        jdbcTemplate.update(INSERT_SQL, "TEAM", 11L, "UPDATE", "fast", System.currentTimeMillis());
+        poller.poll();
+        assertThat(events.stream(EntityChangeEvent.class)).extracting("name").containsExactly("fast");
+        assertThat(poller.gapCount()).isEqualTo(1);
+
+        commit.countDown();
+        slowWriter.join();
+        poller.poll();
+        assertThat(events.stream(EntityChangeEvent.class)).extracting("name").containsExactly("fast", "slow");
+        assertThat(poller.gapCount()).isZero();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Team").executeUpdate());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
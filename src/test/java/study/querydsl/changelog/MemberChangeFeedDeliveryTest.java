@@ -0,0 +1,136 @@
+package study.querydsl.changelog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import study.querydsl.dto.MemberChangeDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.ChangeType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** change_log 에 직접 넣고 tick() 을 직접 불러서 구독자가 받는 이벤트를 확인한다. */
+@SpringBootTest(properties = {
+        "study.change-feed.tick-ms=3600000", // 타이머 대신 tick() 을 직접 호출
+        "study.change-feed.gap-grace-ms=500"
+})
+class MemberChangeFeedDeliveryTest {
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MemberChangeFeed feed;
+
+    long base;
+
+    @BeforeEach
+    public void before(){
+        feed.tick(); // cursor 를 지금 끝으로 맞춘다.
+        Long max = jdbcTemplate.queryForObject("select max(id) from change_log", Long.class);
+        base = max == null ? 0 : max;
+    }
+
+    @Test
+    public void resumesFromLastEventId() throws InterruptedException {
+        insert(base + 1, 1L);
+        insert(base + 2, 2L);
+        feed.tick(); // 구독자 없이 지나간 변경
+
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(new MemberSearchCondition(), base, emitter); // Last-Event-ID: base
+        insert(base + 3, 3L);
+        feed.tick();
+
+        emitter.await(2);
+        assertThat(emitter.ids).containsExactly(base + 2, base + 3); // 놓친 것(catch-up) 다음에 새 변경
+        assertThat(emitter.changes).extracting("type", "memberId").containsExactly(
+                tuple(MemberChangeDto.Type.REMOVE, 1L),
+                tuple(MemberChangeDto.Type.REMOVE, 2L),
+                tuple(MemberChangeDto.Type.REMOVE, 3L));
+    }
+
+    @Test
+    public void waitsForGapThenSkipsItAfterGrace() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(new MemberSearchCondition(), null, emitter);
+        feed.tick();
+
+        insert(base + 2, 2L); // base + 1 은 아직 커밋 안 된 트랜잭션
+        feed.tick();
+        insert(base + 1, 1L);
+        feed.tick();
+        emitter.await(1);
+        assertThat(emitter.ids).containsExactly(base + 2);
+        assertThat(emitter.changes).extracting("memberId").containsExactly(1L, 2L); // id 순서
+
+        insert(base + 4, 4L); // base + 3 은 롤백되어 끝내 오지 않는다.
+        feed.tick();
+        Thread.sleep(600);
+        feed.tick();
+        emitter.await(2);
+        assertThat(emitter.ids).containsExactly(base + 2, base + 4);
+    }
+
+    @Test
+    public void resyncWhenLastEventIdWasPurged() throws InterruptedException {
+        insert(base + 1, 1L);
+        insert(base + 2, 2L);
+        feed.tick();
+        jdbcTemplate.update("delete from change_log where id <= ?", base + 1); // retention 으로 지워졌다.
+
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(new MemberSearchCondition(), base, emitter);
+        feed.tick();
+
+        emitter.await(1);
+        assertThat(emitter.changes).extracting("type").containsExactly(MemberChangeDto.Type.RESYNC);
+    }
+
+    private void insert(long id, Long memberId) {
+        jdbcTemplate.update("insert into change_log (id, node_id, entity_type, entity_id, change_type, name, created_at)"
+                        + " values (?, ?, ?, ?, ?, ?, ?)",
+                id, "test", "MEMBER", memberId, ChangeType.DELETE.name(), null, System.currentTimeMillis());
+    }
+
+    /** 보낸 이벤트의 id 와 내용을 모은다. 전송은 다른 스레드에서 하므로 await 로 기다린다. */
+    static class RecordingEmitter extends SseEmitter {
+
+        final List<Long> ids = Collections.synchronizedList(new ArrayList<>());
+        final List<MemberChangeDto> changes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized void send(SseEventBuilder builder) {
+            Long id = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String) {
+                    for (String line : ((String) part.getData()).split("\n")) {
+                        if (line.startsWith("id:")) {
+                            id = Long.valueOf(line.substring(3));
+                        }
+                    }
+                } else {
+                    changes.addAll((List<MemberChangeDto>) part.getData());
+                }
+            }
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+
+        void await(int events) throws InterruptedException {
+            long until = System.currentTimeMillis() + 5000;
+            while (ids.size() < events && System.currentTimeMillis() < until) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50); // 더 오면 안 되는 이벤트까지 확인
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package study.querydsl.changelog;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberChangeDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.EntityType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MemberChangeFeedTest {
+
+    long nextId = 1;
+
+    @Test
+    public void upsertsMatchingAndRemovesMembersThatLeftTheCondition(){
+        Map<Long, MemberTeamDto> current = new HashMap<>();
+        current.put(1L, new MemberTeamDto(1L, "member1", 30, 10L, "teamA"));
+        current.put(2L, new MemberTeamDto(2L, "member2", 10, 10L, "teamA")); // 나이 조건에서 빠졌다.
+        current.put(3L, new MemberTeamDto(3L, "member3", 10, 10L, "teamA")); // 처음부터 조건 밖
+
+        List<ChangeLogRow> rows = new ArrayList<>();
+        rows.add(row(EntityType.MEMBER, 1L, ChangeType.INSERT));
+        rows.add(row(EntityType.MEMBER, 2L, ChangeType.UPDATE));
+        rows.add(row(EntityType.MEMBER, 3L, ChangeType.INSERT));
+        rows.add(row(EntityType.MEMBER, 4L, ChangeType.DELETE));
+        rows.add(row(EntityType.MEMBER, 1L, ChangeType.UPDATE)); // 같은 회원은 한 번만
+
+        List<MemberChangeDto> changes = MemberChangeFeed.changesFor(
+                new MemberSearchCondition(null, "teamA", 20, null), rows, current);
+
+        assertThat(changes).extracting("type", "memberId").containsExactly(
+                tuple(MemberChangeDto.Type.REMOVE, 2L),
+                tuple(MemberChangeDto.Type.REMOVE, 4L),
+                tuple(MemberChangeDto.Type.UPSERT, 1L));
+    }
+
+    @Test
+    public void teamRenameAsksTeamFilteredSubscribersToResync(){
+        List<ChangeLogRow> rows = new ArrayList<>();
+        rows.add(row(EntityType.TEAM, 10L, ChangeType.INSERT));
+        rows.add(row(EntityType.TEAM, 10L, ChangeType.UPDATE));
+
+        assertThat(MemberChangeFeed.changesFor(new MemberSearchCondition(), rows, new HashMap<>()))
+                .extracting("type").containsExactly(MemberChangeDto.Type.TEAM);
+        assertThat(MemberChangeFeed.changesFor(new MemberSearchCondition(null, "teamA", null, null), rows, new HashMap<>()))
+                .extracting("type").containsExactly(MemberChangeDto.Type.TEAM, MemberChangeDto.Type.RESYNC);
+    }
+
+    private ChangeLogRow row(EntityType entityType, Long entityId, ChangeType changeType) {
+        return new ChangeLogRow(nextId++, "node", entityType, entityId, changeType, "name", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,84 @@
+package study.querydsl.coalesce;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import study.querydsl.bulkhead.QueryBulkhead;
+import study.querydsl.bulkhead.QueryClassifier;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.DataVersion;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSearchCoalescerTest {
+
+    // 조건 없는 조회는 HEAVY. HEAVY 자리는 하나, 기다리지 않는다.
+    QueryBulkhead bulkhead = new QueryBulkhead(1, 0, 1, 0, new SimpleMeterRegistry());
+    MemberSearchCoalescer coalescer = new MemberSearchCoalescer(
+            new DataVersion(), bulkhead, new QueryClassifier(500, 10_000), new SimpleMeterRegistry());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void followerTakesNoPermitAndGetsCopies() throws Exception {
+        MemberTeamDto row = new MemberTeamDto(1L, "member1", 10, 1L, "teamA");
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<List<MemberTeamDto>> leader = executor.submit(() -> search(() -> {
+            leaderStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.singletonList(row);
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicReference<Thread> followerThread = new AtomicReference<>();
+        Future<List<MemberTeamDto>> follower = executor.submit(() -> {
+            followerThread.set(Thread.currentThread());
+            return search(() -> {
+                throw new AssertionError("follower must not run the query");
+            });
+        });
+        long until = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < until
+                && (followerThread.get() == null || followerThread.get().getState() != Thread.State.WAITING)) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // 자리가 하나뿐이지만 follower 는 자리를 잡지 않으므로 BulkheadFullException 이 나지 않는다.
+        assertThat(leader.get(5, TimeUnit.SECONDS)).containsExactly(row);
+        List<MemberTeamDto> shared = follower.get(5, TimeUnit.SECONDS);
+        assertThat(shared).hasSize(1);
+        assertThat(shared.get(0)).isEqualTo(row).isNotSameAs(row); // 같은 값의 복사본
+    }
+
+    private List<MemberTeamDto> search(CheckedSupplier search) {
+        return coalescer.execute("search", new MemberSearchCondition(), MemberField.ALL, null, () -> {
+            try {
+                return search.get();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    interface CheckedSupplier {
+        List<MemberTeamDto> get() throws InterruptedException;
+    }
+}
@@ -0,0 +1,135 @@
+package study.querydsl.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    static final int FOLLOWERS = 8;
+
+    Counter shared = new SimpleMeterRegistry().counter("shared");
+    SingleFlight<String, Integer> singleFlight =
+            new SingleFlight<>(shared, e -> e instanceof QueryTimeoutException, () -> Long.MAX_VALUE);
+    ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+
+    @AfterEach
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Integer>> results = callConcurrently(() -> {
+            executions.incrementAndGet();
+            await(release);
+            return 42;
+        });
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(shared.count()).isEqualTo(FOLLOWERS);
+
+        singleFlight.execute("key", executions::incrementAndGet); // 끝난 결과는 남지 않는다.
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    public void failurePropagatesToEveryCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Integer>> results = callConcurrently(() -> {
+            await(release);
+            throw new IllegalStateException("query failed");
+        });
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void followersRetryWhenLeaderTimesOut() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Integer>> results = callConcurrently(() -> {
+            if (executions.incrementAndGet() == 1) {
+                await(release);
+                throw new QueryTimeoutException("leader deadline"); // leader 만의 마감
+            }
+            return 7;
+        });
+        release.countDown();
+
+        assertThatThrownBy(() -> results.get(0).get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(QueryTimeoutException.class);
+        for (Future<Integer> result : results.subList(1, results.size())) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(7);
+        }
+    }
+
+    /** 첫 번째가 leader 로 실행 중일 때 나머지가 모두 기다리기 시작할 때까지 기다린다. 돌려준 목록의 0번이 leader. */
+    private List<Future<Integer>> callConcurrently(Supplier<Integer> call) throws InterruptedException {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+            leaderStarted.countDown();
+            return call.get();
+        })));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Thread> followers = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch followersStarted = new CountDownLatch(FOLLOWERS);
+        for (int i = 0; i < FOLLOWERS; i++) {
+            results.add(executor.submit(() -> {
+                followers.add(Thread.currentThread());
+                followersStarted.countDown();
+                return singleFlight.execute("key", call);
+            }));
+        }
+        assertThat(followersStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        long until = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < until && !allWaiting(followers)) {
+            Thread.sleep(5);
+        }
+        return results;
+    }
+
+    private boolean allWaiting(List<Thread> threads) {
+        synchronized (threads) {
+            return threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberBatchRequest;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MemberControllerTest {
+
+    @Autowired MemberController memberController;
+
+    @Test
+    public void batchRejectsNullIds(){
+        MemberBatchRequest request = new MemberBatchRequest();
+        request.setIds(null); // {"ids": null}
+        assertThatThrownBy(() -> memberController.searchMembersByIds(request))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+
+        request.setIds(Arrays.asList(1L, null));
+        assertThatThrownBy(() -> memberController.searchMembersByIds(request))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    public void batchOfUnknownIds(){
+        MemberBatchRequest request = new MemberBatchRequest();
+        request.setIds(Arrays.asList(-1L, -2L));
+
+        assertThat(memberController.searchMembersByIds(request)).extracting("found").containsExactly(false, false);
+    }
+}
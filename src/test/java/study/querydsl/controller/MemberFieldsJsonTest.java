@@ -0,0 +1,35 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberFieldsJsonTest {
+
+    ObjectMapper objectMapper = new ObjectMapper().setFilterProvider(MemberField.defaultJsonFilters());
+    MemberTeamDto noTeam = new MemberTeamDto(1L, "member1", 10, null, null);
+
+    @Test
+    public void defaultShapeKeepsAllKeys() throws Exception {
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(noTeam));
+
+        // fields= 가 없으면 팀 없는 회원도 teamId, teamName 키가 있다.
+        assertThat(json.fieldNames()).toIterable().containsExactlyInAnyOrder("memberId", "username", "age", "teamId", "teamName");
+        assertThat(json.get("teamId").isNull()).isTrue();
+    }
+
+    @Test
+    public void projectedShapeKeepsOnlySelectedKeys() throws Exception {
+        JsonNode json = objectMapper.readTree(objectMapper
+                .writer(MemberField.jsonFilters(EnumSet.of(MemberField.MEMBER_ID, MemberField.TEAM_ID)))
+                .writeValueAsString(noTeam));
+
+        assertThat(json.fieldNames()).toIterable().containsExactlyInAnyOrder("memberId", "teamId");
+    }
+}
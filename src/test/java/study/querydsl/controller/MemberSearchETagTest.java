@@ -0,0 +1,54 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.DataVersion;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.event.EntityType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSearchETagTest {
+
+    DataVersion dataVersion = new DataVersion();
+    MemberSearchETag eTag = new MemberSearchETag(dataVersion);
+
+    @Test
+    public void sameConditionSameETag(){
+        // null 과 빈 문자열은 같은 조건
+        String etag1 = eTag.of("v2", null, new MemberSearchCondition(null, "teamA", 10, null), MemberField.ALL, PageRequest.of(0, 20));
+        String etag2 = eTag.of("v2", null, new MemberSearchCondition("", "teamA", 10, null), MemberField.ALL, PageRequest.of(0, 20));
+        assertThat(etag1).isEqualTo(etag2);
+
+        // 페이지가 다르면 다른 ETag
+        String etag3 = eTag.of("v2", null, new MemberSearchCondition(null, "teamA", 10, null), MemberField.ALL, PageRequest.of(1, 20));
+        assertThat(etag1).isNotEqualTo(etag3);
+    }
+
+    @Test
+    public void acceptChangesETag(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        String any = eTag.of("v2", null, condition, MemberField.ALL, PageRequest.of(0, 20));
+        assertThat(eTag.of("v2", "*/*", condition, MemberField.ALL, PageRequest.of(0, 20))).isEqualTo(any);
+
+        // 같은 Accept 를 순서만 바꿔 보내면 같은 ETag, 다른 표현을 요청하면 다른 ETag
+        String json = eTag.of("v2", "application/json, */*;q=0.8", condition, MemberField.ALL, PageRequest.of(0, 20));
+        assertThat(eTag.of("v2", "*/*;q=0.8, application/json", condition, MemberField.ALL, PageRequest.of(0, 20))).isEqualTo(json);
+        assertThat(json).isNotEqualTo(any);
+        assertThat(eTag.of("v2", MemberTeamColumnarConverter.MEDIA_TYPE_VALUE, condition, MemberField.ALL, PageRequest.of(0, 20)))
+                .isNotEqualTo(json);
+    }
+
+    @Test
+    public void writeChangesETag(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        String before = eTag.of("v3", null, condition, MemberField.ALL, PageRequest.of(0, 20));
+
+        dataVersion.onChange(new EntityChangeEvent(EntityType.MEMBER, 1L, ChangeType.UPDATE, "member1"));
+
+        assertThat(eTag.of("v3", null, condition, MemberField.ALL, PageRequest.of(0, 20))).isNotEqualTo(before);
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class MemberTeamColumnarConverterTest {
+
+    ObjectMapper objectMapper = new ObjectMapper().setFilterProvider(MemberField.defaultJsonFilters()); // 앱의 ObjectMapper 와 같게
+    MemberTeamColumnarConverter converter = new MemberTeamColumnarConverter(objectMapper.getFactory());
+    Type listType = new ParameterizedTypeReference<List<MemberTeamDto>>() {}.getType();
+
+    @Test
+    public void columnarLayout() throws Exception {
+        List<MemberTeamDto> members = List.of(
+                new MemberTeamDto(1L, "member1", 10, 10L, "teamA"),
+                new MemberTeamDto(2L, "member2", 20, 20L, "teamB"),
+                new MemberTeamDto(3L, "member3", 30, 10L, "teamA"),
+                new MemberTeamDto(4L, "member4", 40, null, null));
+
+        JsonNode json = objectMapper.readTree(write(members));
+
+        assertThat(json.get("size").asInt()).isEqualTo(4);
+        assertThat(json.get("teams").get("teamName").toString()).isEqualTo("[\"teamA\",\"teamB\"]"); // 팀 이름은 한 번씩만
+        assertThat(json.get("username").toString()).isEqualTo("[\"member1\",\"member2\",\"member3\",\"member4\"]");
+        assertThat(json.get("team").toString()).isEqualTo("[0,1,0,-1]");
+    }
+
+    @Test
+    public void teamNameWithoutTeamId() throws Exception {
+        // fields=username,teamName: teamId 는 조회하지 않아서 null
+        List<MemberTeamDto> members = new ArrayList<>();
+        for (String[] values : new String[][]{{"member1", "teamA"}, {"member2", "teamB"}, {"member3", "teamA"}, {"member4", null}}) {
+            MemberTeamDto dto = new MemberTeamDto();
+            dto.setUsername(values[0]);
+            dto.setTeamName(values[1]);
+            members.add(dto);
+        }
+
+        JsonNode json = objectMapper.readTree(write(members));
+
+        assertThat(json.get("teams").get("teamName").toString()).isEqualTo("[\"teamA\",\"teamB\"]");
+        assertThat(json.get("teams").get("teamId").toString()).isEqualTo("[null,null]");
+        assertThat(json.get("team").toString()).isEqualTo("[0,1,0,-1]");
+    }
+
+    @Test
+    public void smallerThanJackson() throws Exception {
+        List<MemberTeamDto> members = members(1_000);
+
+        byte[] jackson = objectMapper.writerFor(objectMapper.constructType(listType)).writeValueAsBytes(members);
+        assertThat(write(members).length).isLessThan(jackson.length / 2);
+    }
+
+    /** 기본 Jackson 출력과 크기/직렬화 시간 비교 */
+    @Test
+    @Tag("benchmark")
+    public void compareWithJackson() throws Exception {
+        List<MemberTeamDto> members = members(100_000);
+
+        byte[] jackson = objectMapper.writerFor(objectMapper.constructType(listType)).writeValueAsBytes(members);
+        byte[] columnar = write(members);
+
+        // JIT 워밍업 후 측정
+        for (int i = 0; i < 5; i++) {
+            objectMapper.writeValueAsBytes(members);
+            write(members);
+        }
+        long jacksonNanos = measure(() -> objectMapper.writeValueAsBytes(members));
+        long columnarNanos = measure(() -> write(members));
+
+        log.info("rows={} jackson={} bytes, {} ms / columnar={} bytes, {} ms",
+                members.size(), jackson.length, jacksonNanos / 1_000_000, columnar.length, columnarNanos / 1_000_000);
+
+        assertThat(columnar.length).isLessThan(jackson.length / 2);
+    }
+
+    private static List<MemberTeamDto> members(int count) {
+        List<MemberTeamDto> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long teamId = i % 10;
+            members.add(new MemberTeamDto((long) i, "member" + i, i % 100, teamId, "team" + teamId));
+        }
+        return members;
+    }
+
+    private byte[] write(List<MemberTeamDto> members) throws Exception {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(members, listType, MemberTeamColumnarConverter.MEDIA_TYPE, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    private long measure(ThrowingRunnable runnable) throws Exception {
+        int iterations = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runnable.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
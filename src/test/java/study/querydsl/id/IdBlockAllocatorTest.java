@@ -0,0 +1,49 @@
+package study.querydsl.id;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class IdBlockAllocatorTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired IdBlockAllocators allocators;
+
+    @Test
+    public void concurrentAllocationHasNoDuplicates() throws Exception {
+        IdBlockAllocator allocator = allocators.forSequence("member_seq");
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    ids.add(allocator.next());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertThat(ids).hasSize(8000);
+
+        // JPA 로 저장한 id 와도 겹치지 않는다. (같은 pooled-lo 구간 규칙)
+        Member member = new Member("member1");
+        em.persist(member);
+        assertThat(ids).doesNotContain(member.getId());
+    }
+}
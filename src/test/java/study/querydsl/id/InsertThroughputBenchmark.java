@@ -0,0 +1,74 @@
+package study.querydsl.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * insert 처리량 비교. allocation size 1(매 insert 마다 시퀀스 조회) vs 설정값(구간 할당).
+ * ./gradlew benchmark
+ */
+@Slf4j
+@Tag("benchmark")
+abstract class InsertThroughputBenchmark {
+
+    static final int SEED_ROWS = 20_000;
+    static final int SAVE_ROWS = 2_000;
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+
+    /** InitMember 와 같은 방식: 한 트랜잭션에서 persist 반복 */
+    @Test
+    public void seeding(){
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("team");
+            em.persist(team);
+            for (int i = 0; i < SEED_ROWS; i++) {
+                em.persist(new Member("member" + i, i % 100, team));
+                if (i % 1000 == 0) {
+                    em.flush();
+                    em.clear();
+                    team = em.getReference(Team.class, team.getId());
+                }
+            }
+        });
+        report("seeding", SEED_ROWS, System.nanoTime() - start);
+    }
+
+    /** MemberRepository.save: 건마다 트랜잭션 */
+    @Test
+    public void save(){
+        long start = System.nanoTime();
+        for (int i = 0; i < SAVE_ROWS; i++) {
+            memberRepository.save(new Member("member" + i, i % 100));
+        }
+        report("save", SAVE_ROWS, System.nanoTime() - start);
+    }
+
+    private void report(String path, int rows, long nanos) {
+        log.info("[{}] {}: {} rows, {} inserts/sec",
+                getClass().getSimpleName(), path, rows, Math.round(rows / (nanos / 1_000_000_000.0)));
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package study.querydsl.id;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** 변경 후: application.yml 의 allocation size 로 구간 할당 */
+@SpringBootTest
+class PooledInsertBenchmark extends InsertThroughputBenchmark {
+}
@@ -0,0 +1,10 @@
+package study.querydsl.id;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** 변경 전: allocation size 1, insert 마다 시퀀스 조회 */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.study.id.default_allocation_size=1",
+        "spring.jpa.properties.study.id.member_seq.allocation_size=1"})
+class UnpooledInsertBenchmark extends InsertThroughputBenchmark {
+}
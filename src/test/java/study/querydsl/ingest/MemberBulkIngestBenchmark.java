@@ -0,0 +1,67 @@
+package study.querydsl.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberIngestResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /members/bulk 처리량. 목표는 초당 10만 행.
+ * ./gradlew benchmark
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = "decorator.datasource.p6spy.enable-logging=false") // 500 행짜리 insert 를 로그로 남기지 않는다.
+class MemberBulkIngestBenchmark {
+
+    static final int ROWS = 500_000;
+    static final double TARGET_ROWS_PER_SECOND = 100_000;
+
+    @Autowired MemberBulkIngestService ingestService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void csvThroughput() throws Exception {
+        byte[] body = csv(ROWS);
+
+        ingest(csv(50_000)); // JIT 워밍업
+        cleanUp();
+
+        long start = System.nanoTime();
+        MemberIngestResult result = ingest(body);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        double rowsPerSecond = result.getInserted() / seconds;
+        log.info("bulk ingest: {} rows, {} batches, {} rows/sec", result.getInserted(), result.getBatches(),
+                String.format("%.0f", rowsPerSecond));
+        assertThat(result.getInserted()).isEqualTo(ROWS);
+        assertThat(rowsPerSecond).isGreaterThanOrEqualTo(TARGET_ROWS_PER_SECOND);
+    }
+
+    private MemberIngestResult ingest(byte[] body) throws Exception {
+        return ingestService.ingest(new ByteArrayInputStream(body), IngestFormat.CSV, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] csv(int rows) {
+        StringBuilder csv = new StringBuilder("username,age\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("member").append(i).append(',').append(i % 100).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from change_log");
+    }
+}
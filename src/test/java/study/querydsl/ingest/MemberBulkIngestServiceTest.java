@@ -0,0 +1,190 @@
+package study.querydsl.ingest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestResult;
+import study.querydsl.dto.MemberIngestResult.IngestError;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.EntityChangeBatchEvent;
+import study.querydsl.event.EntityChangeEvent;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** 배치마다 따로 커밋하므로 @Transactional 없이 커밋된 데이터로 확인한다. */
+@SpringBootTest(properties = {
+        "study.bulk-ingest.batch-size=3",
+        "study.bulk-ingest.rows-per-statement=2" // 배치 하나가 insert 2번 (2 + 1)
+})
+@RecordApplicationEvents
+class MemberBulkIngestServiceTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberBulkIngestService ingestService;
+    @Autowired ApplicationEvents events;
+
+    Long teamAId;
+
+    @BeforeEach
+    public void before(){
+        teamAId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+    }
+
+    @Test
+    public void ndjson(){
+        String body = String.join("\n",
+                "{\"username\":\"member1\",\"age\":10,\"teamName\":\"teamA\"}",
+                "{\"username\":\"member2\",\"age\":\"20\"}",
+                "",
+                "{\"username\":\"member3\",\"age\":30,\"teamName\":\"teamA\"}",
+                "{\"username\":\"member4\",\"age\":40,\"teamName\":\"teamA\"}",
+                "{\"username\":\"bad\"",                                      // 6: json 오류
+                "{\"username\":\"member5\",\"age\":50,\"teamName\":\"teamX\"}", // 7: 없는 팀
+                "{\"username\":\"member6\"}");                                  // 8: age 없음
+
+        MemberIngestResult result = ingest(body, IngestFormat.NDJSON);
+
+        assertThat(result.getReceived()).isEqualTo(7);
+        assertThat(result.getInserted()).isEqualTo(4);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getBatches()).isEqualTo(2);
+        assertThat(result.getFailedBatches()).isZero();
+        assertThat(result.getErrors()).extracting(IngestError::getFromLine).containsExactly(6L, 7L, 8L);
+
+        List<Member> members = memberRepository.findByUsername("member1");
+        assertThat(members).hasSize(1);
+        assertThat(transactionTemplate.execute(status ->
+                em.find(Member.class, members.get(0).getId()).getTeam().getId())).isEqualTo(teamAId);
+        assertThat(memberRepository.findByUsername("member2").get(0).getAge()).isEqualTo(20);
+    }
+
+    @Test
+    public void csv(){
+        String body = String.join("\n",
+                "age,teamName,username", // 순서는 헤더를 따른다.
+                "10,teamA,member1",
+                "20,,\"member, \"\"2\"\"\"",
+                "x,teamA,member3",
+                "40,\"teamA,member4");
+
+        MemberIngestResult result = ingest(body, IngestFormat.CSV);
+
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(memberRepository.findByUsername("member, \"2\"")).hasSize(1);
+    }
+
+    @Test
+    public void failedBatchDoesNotAbortLoad(){
+        String tooLong = "x".repeat(300); // varchar(255) 초과 -> DB 오류
+        String body = String.join("\n",
+                "username,age",
+                "member1,10", "member2,20", "member3,30",
+                "member4,40", tooLong + ",50", "member6,60",
+                "member7,70");
+
+        MemberIngestResult result = ingest(body, IngestFormat.CSV);
+
+        assertThat(result.getBatches()).isEqualTo(3);
+        assertThat(result.getFailedBatches()).isEqualTo(1);
+        assertThat(result.getFailedRows()).isEqualTo(3);
+        assertThat(result.getInserted()).isEqualTo(4);
+        IngestError error = result.getErrors().get(0);
+        assertThat(error.getBatch()).isEqualTo(1);
+        assertThat(error.getFromLine()).isEqualTo(5);
+        assertThat(error.getToLine()).isEqualTo(7);
+
+        assertThat(memberRepository.findByUsername("member4")).isEmpty(); // 같은 배치라 같이 롤백
+        assertThat(memberRepository.findByUsername("member7")).hasSize(1); // 다음 배치는 계속
+    }
+
+    @Test
+    public void oneChangeEventPerBatch(){
+        String body = String.join("\n", "username,age", "member1,10", "member2,20", "member3,30", "member4,40");
+
+        ingest(body, IngestFormat.CSV);
+
+        // 행마다가 아니라 배치(3 + 1)마다 하나
+        assertThat(events.stream(EntityChangeEvent.class)).isEmpty();
+        assertThat(events.stream(EntityChangeBatchEvent.class))
+                .extracting(batch -> batch.getEvents().size())
+                .containsExactly(3, 1);
+    }
+
+    @Test
+    public void secondIngestIsRejectedWhileOneIsRunning() throws Exception {
+        PipedOutputStream writer = new PipedOutputStream();
+        PipedInputStream body = new PipedInputStream(writer);
+        // 본문이 다 올 때까지 자리를 잡고 있는 요청 (max-concurrent 기본값 1)
+        CompletableFuture<MemberIngestResult> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return ingestService.ingest(body, IngestFormat.CSV, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long until = System.currentTimeMillis() + 5000;
+        while (ingestService.inFlight() == 0 && System.currentTimeMillis() < until) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> ingest("username,age\nmember2,20", IngestFormat.CSV))
+                .isInstanceOf(IngestBusyException.class);
+
+        writer.write("username,age\nmember1,10".getBytes(StandardCharsets.UTF_8));
+        writer.close();
+        assertThat(running.get(5, TimeUnit.SECONDS).getInserted()).isEqualTo(1);
+
+        // 끝나면 다시 받는다.
+        assertThat(ingest("username,age\nmember2,20", IngestFormat.CSV).getInserted()).isEqualTo(1);
+    }
+
+    @Test
+    public void splitCsv(){
+        assertThat(MemberIngestReader.splitCsv("a,\"b,c\",\"d\"\"e\",")).containsExactly("a", "b,c", "d\"e", "");
+        assertThat(MemberIngestReader.splitCsv("a,\"b")).isNull();
+    }
+
+    private MemberIngestResult ingest(String body, IngestFormat format) {
+        try {
+            return ingestService.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                    format, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.entity.QMember;
+import study.querydsl.id.IdBlockAllocator;
+import study.querydsl.id.IdBlockAllocators;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static com.querydsl.jpa.JPAExpressions.select;
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 100만 건에서 상관 서브쿼리 vs 윈도우 함수.
+ * ./gradlew benchmark
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+class MemberAnalyticsBenchmark {
+
+    static final int MEMBERS = 1_000_000;
+    static final int TEAMS = 100;
+
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired IdBlockAllocators allocators;
+    @Autowired MemberAnalyticsRepository memberAnalyticsRepository;
+
+    @Test
+    public void ageGoeTeamAverage(){
+        JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+        QMember memberSub = new QMember("memberSub");
+
+        int subQuery = measure("correlated subquery", () -> queryFactory
+                .select(member.id)
+                .from(member)
+                .where(member.age.goe(
+                        select(memberSub.age.avg()).from(memberSub).where(memberSub.team.eq(member.team))))
+                .fetch().size());
+        int window = measure("window function", () -> memberAnalyticsRepository.findAgeGoeAverage(true).size());
+
+        assertThat(window).isEqualTo(subQuery);
+    }
+
+    @Test
+    public void topPerTeam(){
+        JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+        QMember memberSub = new QMember("memberSub");
+
+        int subQuery = measure("correlated subquery (max)", () -> queryFactory
+                .select(member.id)
+                .from(member)
+                .where(member.age.eq(
+                        select(memberSub.age.max()).from(memberSub).where(memberSub.team.eq(member.team))))
+                .fetch().size());
+        int window = measure("window function (max)", () -> memberAnalyticsRepository.findOldest(true).size());
+
+        assertThat(window).isEqualTo(subQuery);
+    }
+
+    private int measure(String name, Supplier<Integer> query) {
+        query.get(); // 워밍업
+        long start = System.nanoTime();
+        int rows = query.get();
+        log.info("{}: {} rows, {} ms", name, rows, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    @BeforeEach
+    public void seed(){
+        IdBlockAllocator teamIds = allocators.forSequence("team_seq");
+        IdBlockAllocator memberIds = allocators.forSequence("member_seq");
+
+        long[] teams = new long[TEAMS];
+        for (int t = 0; t < TEAMS; t++) {
+            teams[t] = teamIds.next();
+            jdbcTemplate.update("insert into team (id, name) values (?, ?)", teams[t], "team" + t);
+        }
+
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            batch.add(new Object[]{memberIds.next(), "member" + i, random.nextInt(80), teams[random.nextInt(TEAMS)]});
+            if (batch.size() == 10_000) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+    }
+}
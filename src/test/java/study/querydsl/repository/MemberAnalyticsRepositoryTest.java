@@ -0,0 +1,95 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberAgeStatDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.querydsl.jpa.JPAExpressions.select;
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class MemberAnalyticsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired MemberAnalyticsRepository memberAnalyticsRepository;
+    JPAQueryFactory queryFactory;
+
+    /** QuerydslBasicJoinTest.subQuery 와 같은 결과 */
+    @Test
+    public void oldest(){
+        QMember memberSub = new QMember("memberSub");
+        List<Integer> subQuery = queryFactory
+                .select(member.age)
+                .from(member)
+                .where(member.age.eq(select(memberSub.age.max()).from(memberSub)))
+                .fetch();
+
+        assertThat(memberAnalyticsRepository.findOldest(false)).extracting("age").containsExactlyElementsOf(subQuery);
+        assertThat(memberAnalyticsRepository.findOldest(true)).extracting("username").containsExactly("member2", "member4");
+    }
+
+    /** QuerydslBasicJoinTest.subQueryGoe 와 같은 결과 */
+    @Test
+    public void ageGoeAverage(){
+        assertThat(memberAnalyticsRepository.findAgeGoeAverage(false)).extracting("age").containsExactly(30, 40);
+
+        // 팀별 평균: 서브쿼리라면 바깥 row 의 team 을 참조하는 상관 서브쿼리가 된다.
+        QMember memberSub = new QMember("memberSub");
+        List<String> correlated = queryFactory
+                .select(member.username)
+                .from(member)
+                .where(member.age.goe(
+                        select(memberSub.age.avg()).from(memberSub).where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch();
+        assertThat(memberAnalyticsRepository.findAgeGoeAverage(true)).extracting("username")
+                .containsExactlyElementsOf(correlated);
+    }
+
+    /** QuerydslBasicJoinTest.selectSubQuery 와 같은 결과 */
+    @Test
+    public void averageAge(){
+        List<MemberAgeStatDto> result = memberAnalyticsRepository.findWithAverageAge(true);
+
+        assertThat(result).extracting("averageAge").containsExactly(15.0, 15.0, 35.0, 35.0);
+        assertThat(memberAnalyticsRepository.findWithAverageAge(false)).extracting("averageAge").containsOnly(25.0);
+    }
+
+    @Test
+    public void topByAgePerTeam(){
+        List<MemberAgeStatDto> result = memberAnalyticsRepository.findTopByAge(true, 1);
+
+        assertThat(result).extracting("username").containsExactly("member2", "member4");
+        assertThat(result).extracting("ageRank").containsOnly(1L);
+    }
+
+    @BeforeEach
+    public void before(){
+        queryFactory = new JPAQueryFactory(em);
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        em.flush(); // 네이티브 SQL(JdbcTemplate)은 영속성 컨텍스트를 flush 하지 않는다.
+    }
+}
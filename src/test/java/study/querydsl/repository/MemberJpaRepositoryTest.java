@@ -1,6 +1,8 @@
 package study.querydsl.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,6 +14,7 @@ import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -72,4 +75,47 @@ class MemberJpaRepositoryTest {
 
         assertThat(result).extracting("username").containsExactly("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void forEachChunkTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+
+        List<Integer> chunkSizes = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        List<Member> firstChunk = new ArrayList<>();
+        memberJpaRepository.forEachChunk(new MemberSearchCondition(), 3, chunk -> {
+            chunkSizes.add(chunk.size());
+            if (firstChunk.isEmpty()) {
+                firstChunk.addAll(chunk);
+            }
+            for (Member m : chunk) {
+                ids.add(m.getId());
+                assertThat(Hibernate.isInitialized(m.getTeam())).isTrue(); // fetch join
+                m.setAge(m.getAge() + 100); // 변경 감지로 반영된다.
+            }
+            // 영속성 컨텍스트에는 이번 chunk 의 회원과 그 팀만 있다.
+            assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isLessThanOrEqualTo(3 + 2);
+        });
+
+        assertThat(chunkSizes).containsExactly(3, 3, 3, 1);
+        assertThat(ids).isSorted().doesNotHaveDuplicates().hasSize(10);
+        assertThat(em.contains(firstChunk.get(0))).isFalse(); // 처리가 끝난 chunk 는 준영속
+        assertThat(memberJpaRepository.findAll()).extracting("age").allMatch(age -> (int) age >= 100);
+
+        // 조건도 그대로 쓸 수 있다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        List<String> teamAMembers = new ArrayList<>();
+        memberJpaRepository.forEachChunk(condition, 2,
+                chunk -> chunk.forEach(m -> teamAMembers.add(m.getUsername())));
+        assertThat(teamAMembers).containsExactly("member0", "member2", "member4", "member6", "member8");
+    }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** 구간마다 다른 커넥션으로 읽으므로 커밋된 데이터로 확인한다. (@Transactional 없음) */
+@SpringBootTest(properties = {
+        "study.partitioned-read.partitions=4",
+        "study.partitioned-read.chunk-size=50"
+})
+class MemberPartitionedReaderTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberPartitionedReader reader;
+
+    @BeforeEach
+    public void before(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 1000; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @Test
+    public void readOrdered(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        List<MemberTeamDto> result = reader.readOrdered(condition);
+
+        List<Long> expected = memberRepository.search(condition).stream()
+                .map(MemberTeamDto::getMemberId).sorted().collect(Collectors.toList());
+        assertThat(result).extracting("memberId").containsExactlyElementsOf(expected); // member_id 순서
+    }
+
+    @Test
+    public void readUnordered(){
+        MemberSearchCondition condition = new MemberSearchCondition(null, "teamB", 50, null);
+        List<MemberTeamDto> result = new ArrayList<>();
+
+        reader.readUnordered(condition, result::addAll);
+
+        assertThat(result).hasSize(memberRepository.search(condition).size());
+        assertThat(result).allMatch(row -> "teamB".equals(row.getTeamName()) && row.getAge() >= 50);
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+}
@@ -1,11 +1,16 @@
 package study.querydsl.repository;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.delta.TombstonePurger;
+import study.querydsl.dto.MemberBatchResult;
+import study.querydsl.dto.MemberDeltaDto;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -13,9 +18,11 @@ import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.*;
 import static study.querydsl.entity.QMember.member;
 
@@ -26,6 +33,7 @@ class MemberRepositoryTest {
     @Autowired
     EntityManager em;
     @Autowired MemberRepository memberRepository;
+    @Autowired TombstonePurger tombstonePurger;
 
     /**
      * MemberRepository 가 MemberRepositoryCustom을 상속받고 있으므로, search()메소드를 사용 할 수 있다.
@@ -105,6 +113,87 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    /** 없는 팀 이름이면 쿼리 없이 빈 결과 */
+    @Test
+    public void searchUnknownTeamTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("noSuchTeam");
+
+        assertThat(memberRepository.search(condition)).isEmpty();
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 3)).getTotalElements()).isEqualTo(1);
+    }
+
+    /** fields= 로 필요한 컬럼만 조회. teamName 컬럼이 없으면 team 조인을 생략한다. */
+    @Test
+    public void searchFieldsTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+
+        List<MemberTeamDto> result = memberRepository.search(condition,
+                MemberField.parse("memberId,username,teamId"));
+
+        assertThat(result).extracting("username").containsExactly("member4");
+        assertThat(result).extracting("teamId").containsExactly(teamB.getId()); // 조인 없이 FK 로 조회
+        assertThat(result).extracting("age", "teamName").containsExactly(tuple(null, null)); // 조회하지 않은 컬럼
+
+        // teamName 조건은 조인 없이 team_id 로 거른다. (TeamNameResolver)
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(null);
+        List<MemberTeamDto> byTeam = memberRepository.search(condition, MemberField.parse("username"));
+        assertThat(byTeam).extracting("username").containsExactly("member1", "member2");
+    }
+
+    /** 여러 id 조회: 요청 순서 유지, 없는 id 표시 */
+    @Test
+    public void searchByIdsTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        em.persist(member1);
+        em.persist(member2);
+
+        Long missingId = member2.getId() + 1000;
+        List<MemberBatchResult> result = memberRepository.searchByIds(
+                List.of(member2.getId(), missingId, member1.getId()), true);
+
+        assertThat(result).extracting("id").containsExactly(member2.getId(), missingId, member1.getId());
+        assertThat(result).extracting("found").containsExactly(true, false, true);
+        assertThat(result.get(0).getMember().getTeamName()).isEqualTo("teamA");
+
+        // IN 절 최대 크기를 넘으면 여러 번 나눠서 조회한다.
+        List<Long> manyIds = new ArrayList<>();
+        for (long i = 0; i < MemberRepositoryImpl.MAX_IN_SIZE * 2 + 1; i++) {
+            manyIds.add(member1.getId() + 10_000 + i);
+        }
+        manyIds.add(member1.getId());
+        List<MemberBatchResult> many = memberRepository.searchByIds(manyIds, false);
+        assertThat(many).hasSize(manyIds.size());
+        assertThat(many.get(many.size() - 1).isFound()).isTrue();
+        assertThat(many.get(many.size() - 1).getMember().getTeamName()).isNull(); // withTeam=false
+    }
+
     /** 인터페이스 QuerydslPredicateExecutor */
     @Test
     public void querydslPredicateExecutorTest(){
@@ -133,4 +222,77 @@ class MemberRepositoryTest {
             System.out.println("findMember = " + findMember);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchDeltaTest(){
+        long since = ((Number) em.createNativeQuery("select next value for row_version_seq").getSingleResult()).longValue();
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.flush();
+
+        MemberDeltaDto first = memberRepository.searchDelta(since, 100);
+        assertThat(first.getChanged()).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(first.isHasMore()).isFalse();
+        assertThat(memberRepository.searchDelta(first.getVersion(), 100).getChanged()).isEmpty();
+        assertThat(memberRepository.searchDelta(since, 1).isHasMore()).isTrue();
+
+        // 벌크 update 도 row_version 이 바뀐다.
+        new JPAQueryFactory(em).update(member).set(member.age, member.age.add(1)).where(member.username.eq("member1")).execute();
+        em.clear();
+        MemberDeltaDto second = memberRepository.searchDelta(first.getVersion(), 100);
+        assertThat(second.getChanged()).extracting("username", "age").containsExactly(tuple("member1", 11));
+
+        // 팀 이름이 바뀌면 소속 회원 전부, 삭제는 tombstone
+        em.find(Team.class, teamA.getId()).setName("teamB");
+        em.remove(em.find(Member.class, member2.getId()));
+        em.flush();
+        MemberDeltaDto third = memberRepository.searchDelta(second.getVersion(), 100);
+        assertThat(third.getChanged()).extracting("username", "teamName").containsExactly(tuple("member1", "teamB"));
+        assertThat(third.getDeleted()).containsExactly(member2.getId());
+    }
+
+    @Test
+    public void searchDeltaPagesTeamChange(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        long since = memberRepository.searchDelta(0, 100).getVersion();
+
+        // 팀 이름 변경으로 바뀐 회원 5명도 limit 씩 나눠서 받는다.
+        em.find(Team.class, teamA.getId()).setName("teamB");
+        em.flush();
+        List<MemberTeamDto> received = new ArrayList<>();
+        MemberDeltaDto delta;
+        do {
+            delta = memberRepository.searchDelta(since, 2);
+            assertThat(delta.getChanged().size()).isLessThanOrEqualTo(2);
+            received.addAll(delta.getChanged());
+            since = delta.getVersion();
+        } while (delta.isHasMore());
+        assertThat(received).extracting("teamName").containsOnly("teamB").hasSize(5);
+    }
+
+    @Test
+    public void searchDeltaResyncAfterPurge(){
+        em.createNativeQuery("delete from tombstone").executeUpdate();
+        long before = ((Number) em.createNativeQuery("select next value for row_version_seq").getSingleResult()).longValue();
+        for (long id = 1; id <= 3; id++) { // deleted_at=0: 이미 만료
+            em.createNativeQuery("insert into tombstone (entity_type, entity_id, deleted_at) values ('MEMBER', ?, 0)")
+                    .setParameter(1, id).executeUpdate();
+        }
+        tombstonePurger.purge(); // 만료된 것 중 마지막 하나만 남는다.
+
+        assertThat(memberRepository.searchDelta(before, 100).isResync()).isTrue();
+        MemberDeltaDto full = memberRepository.searchDelta(0, 100);
+        assertThat(full.isResync()).isFalse();
+        assertThat(memberRepository.searchDelta(full.getVersion(), 100).isResync()).isFalse();
+    }
+}
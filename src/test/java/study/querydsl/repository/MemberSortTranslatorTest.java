@@ -0,0 +1,72 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberSortTranslatorTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void sortsByRequestedPropertiesWithIdTiebreaker(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 20, teamB));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 20, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        List<MemberTeamDto> byAge = memberRepository
+                .searchPageComplex(condition, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "age"))).getContent();
+        assertThat(byAge).extracting("username").containsExactly("member1", "member3", "member4", "member2");
+
+        List<MemberTeamDto> byTeam = memberRepository
+                .searchPageSimple(condition, PageRequest.of(0, 10, Sort.by("teamName", "age"))).getContent();
+        assertThat(byTeam).extracting("username").containsExactly("member2", "member3", "member1", "member4");
+    }
+
+    @Test
+    public void rejectsUnknownAndDeepUnindexedSorts(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.searchPageSimple(condition, PageRequest.of(0, 10, Sort.by("password"))))
+                .isInstanceOf(InvalidSortException.class);
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(condition, PageRequest.of(20, 100, Sort.by("teamName"))))
+                .isInstanceOf(InvalidSortException.class);
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(20, 100, Sort.by("username"))).getContent())
+                .isEmpty(); // 인덱스로 정렬하면 깊은 페이지도 허용
+    }
+
+    /** 인덱스가 있다고 한 정렬은 H2 가 정렬 없이 인덱스 순서로 읽는다. */
+    @Test
+    public void indexedSortsUseIndexOrder(){
+        for (MemberSortTranslator.SortProperty property : MemberSortTranslator.SortProperty.values()) {
+            if (!property.indexed) {
+                continue;
+            }
+            String plan = (String) em.createNativeQuery("explain select member_id, username, age, team_id from member order by "
+                    + property.column + ", member_id limit 10 offset 5000").getSingleResult();
+            assertThat(plan).as(property.name()).containsIgnoringCase("index sorted");
+        }
+    }
+}
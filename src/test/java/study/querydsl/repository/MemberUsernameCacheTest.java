@@ -0,0 +1,123 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** 캐시는 커밋된 데이터만 담으므로 @Transactional 없이 확인한다. */
+@SpringBootTest
+class MemberUsernameCacheTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MemberUsernameCache memberUsernameCache;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MeterRegistry registry;
+
+    @Test
+    public void invalidatedOnMemberWrite(){
+        assertThat(memberUsernameCache.find("member1")).isEmpty(); // 없는 username 도 캐시한다.
+
+        Long memberId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member = new Member("member1", 10, teamA);
+            em.persist(member);
+            return member.getId();
+        });
+        assertThat(memberUsernameCache.find("member1")).extracting("memberId", "teamName")
+                .containsExactly(tuple(memberId, "teamA"));
+
+        // 세 경로 모두 같은 결과
+        assertThat(memberRepository.findByUsername("member1")).extracting("id").containsExactly(memberId);
+        assertThat(memberJpaRepository.findByUsername("member1")).extracting("id").containsExactly(memberId);
+        assertThat(memberJpaRepository.findByUsername_Querydsl("member1")).extracting("id").containsExactly(memberId);
+
+        // username 변경: 예전 이름 항목도 지워진다.
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, memberId).setUsername("member9"));
+        assertThat(memberUsernameCache.find("member1")).isEmpty();
+        assertThat(memberRepository.findByUsername("member9")).extracting("id").containsExactly(memberId);
+
+        // 삭제
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, memberId)));
+        assertThat(memberUsernameCache.find("member9")).isEmpty();
+    }
+
+    @Test
+    public void reverseIndexFollowsCache(){
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("member3", 30);
+            em.persist(member);
+            return member.getId();
+        });
+        assertThat(memberUsernameCache.find("member3")).extracting("memberId").containsExactly(memberId);
+        assertThat(memberUsernameCache.indexedMemberCount()).isEqualTo(1);
+
+        // 캐시에서 빠지면 역인덱스에서도 빠진다.
+        memberUsernameCache.invalidateAll();
+        assertThat(memberUsernameCache.indexedMemberCount()).isZero();
+    }
+
+    @Test
+    public void teamRenameInvalidates(){
+        Long teamId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            return teamA.getId();
+        });
+        assertThat(memberUsernameCache.find("member1")).extracting("teamName").containsExactly("teamA");
+
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId).setName("teamB"));
+        assertThat(memberUsernameCache.find("member1")).extracting("teamName").containsExactly("teamB");
+    }
+
+    @Test
+    public void cachedWithHitRatio(){
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("member2", 20);
+            em.persist(member);
+            return member.getId();
+        });
+        assertThat(memberUsernameCache.find("member2")).extracting("memberId").containsExactly(memberId);
+
+        // 이벤트를 거치지 않는 쓰기는 (TTL 전까지) 보이지 않는다. 두 번째 조회는 DB 에 가지 않는다.
+        jdbcTemplate.update("insert into member (member_id, username, age) values (?, ?, ?)", 999_999L, "member2", 20);
+        assertThat(memberUsernameCache.find("member2")).extracting("memberId").containsExactly(memberId);
+        assertThat(registry.get("member.username-cache.hit-ratio").gauge().value()).isGreaterThan(0);
+
+        memberUsernameCache.invalidateAll();
+        assertThat(memberUsernameCache.find("member2")).extracting("memberId").containsExactly(memberId, 999_999L);
+
+        // DTO 경로는 캐시에서 답한다. 엔티티 경로는 PK 로 DB 에서 읽으므로 이벤트 없이 지운 행이 빠진다.
+        jdbcTemplate.update("delete from member where member_id = ?", 999_999L);
+        assertThat(memberRepository.findDtosByUsername("member2")).extracting("memberId").containsExactly(memberId, 999_999L);
+        assertThat(memberRepository.findByUsername("member2")).extracting("id").containsExactly(memberId);
+
+        assertThat(memberRepository.findByUsername("nobody")).isEmpty(); // 없는 이름: 쿼리 없이 빈 결과
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        memberUsernameCache.invalidateAll(); // 벌크 삭제는 엔티티 이벤트가 없다.
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** 캐시는 커밋된 데이터만 담으므로 @Transactional 없이 확인한다. */
+@SpringBootTest
+class TeamNameResolverTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TeamNameResolver teamNameResolver;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void invalidatedOnTeamWrite(){
+        assertThat(teamNameResolver.resolve("teamA")).isEmpty(); // 없는 팀도 negative-ttl 동안 캐시한다.
+
+        Long teamId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+        assertThat(teamNameResolver.resolve("teamA")).containsExactly(teamId); // 커밋 후 비워졌다.
+
+        // 이름 변경: 예전 이름도 더 이상 찾지 않는다.
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId).setName("teamC"));
+        assertThat(teamNameResolver.resolve("teamA")).isEmpty();
+        assertThat(teamNameResolver.resolve("teamC")).containsExactly(teamId);
+    }
+
+    @Test
+    public void cached(){
+        assertThat(teamNameResolver.resolve("teamB")).isEmpty();
+
+        // 이벤트를 거치지 않는 쓰기는 캐시에 반영되지 않는다.
+        jdbcTemplate.update("insert into team (id, name) values (?, ?)", 999_999L, "teamB");
+        assertThat(teamNameResolver.resolve("teamB")).isEmpty();
+
+        teamNameResolver.invalidateAll();
+        assertThat(teamNameResolver.resolve("teamB")).containsExactly(999_999L);
+    }
+
+    @Test
+    public void writeTransactionSeesOwnTeams(){
+        assertThat(teamNameResolver.resolve("teamA")).isEmpty();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+
+            // 아직 flush 전이지만 쓰기 트랜잭션 안에서는 캐시를 거치지 않으므로 보인다.
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamA");
+            assertThat(memberRepository.search(condition)).extracting("username").containsExactly("member1");
+            status.setRollbackOnly();
+        });
+
+        assertThat(teamNameResolver.resolve("teamA")).isEmpty(); // 롤백된 팀은 남지 않는다.
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        teamNameResolver.invalidateAll(); // 벌크 삭제는 엔티티 이벤트가 없다.
+    }
+}
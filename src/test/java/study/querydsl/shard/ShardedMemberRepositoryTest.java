@@ -0,0 +1,125 @@
+package study.querydsl.shard;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.bloom.UsernameBloomFilter;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.InvalidSortException;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** 내장 H2 세 개를 샤드로 쓴다. */
+@SpringBootTest(properties = {
+        "study.sharding.enabled=true",
+        "study.sharding.ddl-auto=create-drop",
+        "study.sharding.urls[0]=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "study.sharding.urls[1]=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "study.sharding.urls[2]=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"
+})
+class ShardedMemberRepositoryTest {
+
+    @Autowired MemberShards shards;
+    @Autowired ShardedMemberRepository shardedMemberRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired UsernameBloomFilter usernameBloomFilter;
+    @Autowired JdbcTemplate jdbcTemplate; // 기본 DataSource
+
+    @BeforeEach
+    public void before(){
+        for (Shard shard : shards.all()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shard.getDataSource());
+            jdbcTemplate.update("delete from member");
+            jdbcTemplate.update("delete from team");
+        }
+        for (int t = 0; t < 6; t++) {
+            Long teamId = shardedMemberRepository.saveTeam("team" + t);
+            for (int i = 0; i < 10; i++) {
+                shardedMemberRepository.saveMember("member" + t + "_" + i, t * 10 + i, teamId);
+            }
+        }
+    }
+
+    @Test
+    public void searchAllShards(){
+        List<MemberTeamDto> result = shardedMemberRepository.search(new MemberSearchCondition(null, null, 25, null));
+
+        assertThat(result).hasSize(35); // 나이 25 ~ 59
+        assertThat(result).extracting("memberId").isSorted(); // 샤드 결과를 member_id 순으로 합친다.
+    }
+
+    @Test
+    public void pruneByTeamName(){
+        List<MemberTeamDto> result = shardedMemberRepository.search(new MemberSearchCondition(null, "team3", null, null));
+        assertThat(result).hasSize(10).allMatch(row -> "team3".equals(row.getTeamName()));
+
+        // 없는 팀이면 샤드에 가지 않고 빈 결과
+        assertThat(shardedMemberRepository.search(new MemberSearchCondition(null, "none", null, null))).isEmpty();
+    }
+
+    @Test
+    public void mergedPaging(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        List<MemberTeamDto> all = shardedMemberRepository.search(condition);
+
+        Page<MemberTeamDto> page = shardedMemberRepository.searchPageComplex(condition, PageRequest.of(2, 7));
+
+        assertThat(page.getTotalElements()).isEqualTo(60); // 샤드별 count 의 합
+        assertThat(page.getContent()).containsExactlyElementsOf(all.subList(14, 21));
+
+        Page<MemberTeamDto> simple = shardedMemberRepository.searchPageSimple(condition, PageRequest.of(8, 7));
+        assertThat(simple.getTotalElements()).isEqualTo(60);
+        assertThat(simple.getContent()).containsExactlyElementsOf(all.subList(56, 60));
+    }
+
+    @Test
+    public void memberRepositoryRoutesToShards(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        List<MemberTeamDto> all = shardedMemberRepository.search(condition);
+
+        assertThat(memberRepository.search(condition)).containsExactlyElementsOf(all);
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(1, 7));
+        assertThat(page.getTotalElements()).isEqualTo(60);
+        assertThat(page.getContent()).containsExactlyElementsOf(all.subList(7, 14));
+    }
+
+    @Test
+    public void unpagedAndSort(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> unpaged = shardedMemberRepository.searchPageSimple(condition, Pageable.unpaged());
+        assertThat(unpaged.getContent()).hasSize(60);
+        assertThat(unpaged.getTotalElements()).isEqualTo(60);
+
+        // member_id 순서 외에는 샤드 결과를 합칠 수 없다.
+        assertThatThrownBy(() -> shardedMemberRepository.searchPageComplex(condition, PageRequest.of(0, 7, Sort.by("age"))))
+                .isInstanceOf(InvalidSortException.class);
+    }
+
+    @Test
+    public void writesPublishEvents(){
+        String sql = "select count(*) from change_log where entity_type = 'MEMBER' and name = 'sharded-new'";
+        Long before = jdbcTemplate.queryForObject(sql, Long.class);
+
+        shardedMemberRepository.saveMember("sharded-new", 1, shardedMemberRepository.saveTeam("teamNew"));
+
+        assertThat(jdbcTemplate.queryForObject(sql, Long.class)).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void bloomFilterIsOffWhenSharded(){
+        usernameBloomFilter.rebuild(); // 기본 DataSource 만 읽으므로 샤드의 username 을 "없음" 으로 답하게 된다.
+        assertThat(usernameBloomFilter.mightContain("member0_0")).isTrue();
+    }
+}
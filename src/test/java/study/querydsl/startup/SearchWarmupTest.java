@@ -0,0 +1,42 @@
+package study.querydsl.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "study.warmup.enabled=true",
+        "study.warmup.min-iterations=2",
+        "study.warmup.max-iterations=3"
+})
+class SearchWarmupTest {
+
+    @Autowired MeterRegistry registry;
+    @Autowired SearchWarmup searchWarmup;
+    @Autowired ApplicationAvailability availability;
+
+    @Test
+    public void ranBeforeContextWasReady(){
+        double iterations = registry.get("application.warmup.iterations").gauge().value();
+        assertThat(iterations).isBetween(2.0, 3.0);
+
+        // 끝났을 때는 아직 트래픽을 받지 않았고, 지금은 받는다.
+        assertThat(searchWarmup.getReadinessWhenDone()).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+        assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    @Test
+    public void coversEveryConditionShape(){
+        List<MemberSearchCondition> shapes = SearchWarmup.shapes("teamA");
+        assertThat(shapes).hasSize(16);
+        assertThat(shapes).extracting("username", "teamName", "ageGoe", "ageLoe").doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,62 @@
+package study.querydsl.startup;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupPhaseReportTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    JpaBootstrapTimer jpaBootstrapTimer = new JpaBootstrapTimer();
+
+    @Test
+    public void recordPhases() throws InterruptedException {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(100);
+
+        StartupStep refresh = startup.start("spring.context.refresh");
+        StartupStep emf = startup.start("spring.beans.instantiate").tag("beanName", "entityManagerFactory");
+        Thread.sleep(20);
+        emf.end();
+        startup.start("spring.beans.instantiate").tag("beanName", "memberController").end();
+        refresh.end();
+
+        new StartupPhaseReport(startup, registry, jpaBootstrapTimer).report();
+
+        Timer jpa = registry.find("application.startup.phase").tag("phase", "jpa-bootstrap").timer();
+        assertThat(jpa).isNotNull();
+        assertThat(jpa.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+        assertThat(registry.find("application.startup.phase").tag("phase", "context-refresh").timer()).isNotNull();
+        assertThat(registry.find("application.startup.phase").tag("phase", "ready").timer()).isNotNull();
+        // 기록되지 않은 단계는 타이머도 만들지 않는다.
+        assertThat(registry.find("application.startup.phase").tag("phase", "component-scan").timer()).isNull();
+    }
+
+    /** bootstrap-mode: deferred: 빈 생성은 금방 끝나고 SessionFactory 는 그 뒤에 만들어진다. */
+    @Test
+    public void deferredJpaBootstrapRunsUntilSessionFactoryIsReady() throws InterruptedException {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(100);
+
+        startup.start("spring.beans.instantiate").tag("beanName", "entityManagerFactory").end();
+        Thread.sleep(30); // executor 에서 Hibernate 부트스트랩
+        jpaBootstrapTimer.markReady();
+
+        new StartupPhaseReport(startup, registry, jpaBootstrapTimer).report();
+
+        Timer jpa = registry.find("application.startup.phase").tag("phase", "jpa-bootstrap").timer();
+        assertThat(jpa.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(30);
+    }
+
+    @Test
+    public void defaultStartupIsIgnored(){
+        new StartupPhaseReport(ApplicationStartup.DEFAULT, registry, jpaBootstrapTimer).report();
+
+        assertThat(registry.getMeters()).isEmpty();
+    }
+}
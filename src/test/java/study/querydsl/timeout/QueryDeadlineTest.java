@@ -0,0 +1,109 @@
+package study.querydsl.timeout;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class QueryDeadlineTest {
+
+    @Autowired EntityManager em;
+
+    @AfterEach
+    public void clear(){
+        QueryDeadline.clear();
+    }
+
+    @Test
+    public void queriesCarryRemainingTimeAsTimeoutHint(){
+        DeadlineJPAQueryFactory queryFactory = new DeadlineJPAQueryFactory(em);
+        assertThat(queryFactory.selectFrom(member).createQuery().getHints())
+                .doesNotContainKey(DeadlineJPAQueryFactory.TIMEOUT_HINT); // 요청 밖
+
+        QueryDeadline.start("test", 3000);
+        assertThat(queryFactory.selectFrom(member).createQuery().getHints())
+                .containsKey(DeadlineJPAQueryFactory.TIMEOUT_HINT);
+        em.persist(new Member("member1"));
+        assertThat(queryFactory.selectFrom(member).fetch()).hasSize(1);
+
+        QueryDeadline.start("test", -1);
+        assertThatThrownBy(() -> queryFactory.selectFrom(member).fetch()).isInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    public void watchdogCancelsStatementsPastDeadline() throws SQLException {
+        QueryTimeoutProperties properties = new QueryTimeoutProperties();
+        properties.setWatchdogGraceMs(0);
+        properties.setWatchdogIntervalMs(60_000); // 타이머 대신 cancelExpired() 를 직접 호출
+        MeterRegistry registry = new SimpleMeterRegistry();
+        QueryDeadlineWatchdog watchdog = new QueryDeadlineWatchdog(properties, registry);
+
+        AtomicInteger cancels = new AtomicInteger();
+        Statement statement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("cancel")) {
+                        cancels.incrementAndGet();
+                    }
+                    return method.getReturnType() == boolean.class ? false : null; // isClosed() = false
+                });
+
+        QueryDeadline running = QueryDeadline.start("/v1/members", 60_000);
+        running.register(statement);
+        watchdog.watch(running);
+        QueryDeadline expired = QueryDeadline.start("/v1/members", -10);
+        expired.register(statement);
+        watchdog.watch(expired);
+
+        watchdog.cancelExpired();
+        watchdog.cancelExpired(); // 한 번만 cancel
+
+        assertThat(cancels.get()).isEqualTo(1);
+        assertThat(registry.counter("member.query.cancelled", "endpoint", "/v1/members").count()).isEqualTo(1);
+        watchdog.shutdown();
+    }
+
+    @Test
+    public void deadlineIsPassedToWorkerThreads() throws Exception {
+        DeadlineJPAQueryFactory queryFactory = new DeadlineJPAQueryFactory(em);
+        QueryDeadline deadline = QueryDeadline.start("test", 3000);
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            // ThreadLocal 은 물려받지 않으므로 그냥 넘기면 힌트가 빠진다.
+            assertThat(worker.submit(() -> queryFactory.selectFrom(member).createQuery().getHints()).get())
+                    .doesNotContainKey(DeadlineJPAQueryFactory.TIMEOUT_HINT);
+            assertThat(worker.submit(() -> QueryDeadline.callWithin(deadline,
+                    () -> queryFactory.selectFrom(member).createQuery().getHints())).get())
+                    .containsKey(DeadlineJPAQueryFactory.TIMEOUT_HINT);
+            assertThat(worker.submit(QueryDeadline::current).get()).isNull(); // 끝나면 원래대로
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    @Test
+    public void recognizesWrappedTimeouts(){
+        SQLException canceled = new SQLException("Statement was canceled or the session timed out", "57014");
+        assertThat(QueryDeadlineFilter.isQueryTimeout(new PersistenceException(new RuntimeException(canceled)))).isTrue();
+        assertThat(QueryDeadlineFilter.isQueryTimeout(new PersistenceException(new SQLException("boom", "42000")))).isFalse();
+    }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.writebehind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** 버퍼는 별도 트랜잭션으로 쓰기 때문에 @Transactional 없이 커밋된 데이터로 확인한다. */
+@SpringBootTest(properties = {
+        "study.write-behind.enabled=true",
+        "study.write-behind.flush-interval-ms=60000" // 타이머 대신 flush() 를 직접 호출
+})
+class MemberWriteBehindBufferTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberWriteBehindBuffer buffer;
+
+    @Test
+    public void coalesce(){
+        PendingMemberUpdate merged = PendingMemberUpdate.age(10)
+                .merge(PendingMemberUpdate.team(1L))
+                .merge(PendingMemberUpdate.age(20));
+
+        assertThat(merged.getAge()).isEqualTo(20);
+        assertThat(merged.isTeamChanged()).isTrue();
+        assertThat(merged.getTeamId()).isEqualTo(1L);
+    }
+
+    @Test
+    public void flushWritesLatestValues(){
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member = new Member("member1", 10, teamA);
+            em.persist(member);
+            return new Long[]{member.getId(), teamB.getId()};
+        });
+
+        for (int age = 11; age <= 30; age++) {
+            buffer.updateAge(ids[0], age);
+        }
+        buffer.changeTeam(ids[0], ids[1]);
+        assertThat(buffer.getQueueDepth()).isEqualTo(1); // 21번의 변경이 하나로 합쳐진다.
+
+        buffer.flush();
+
+        Member member = memberRepository.findById(ids[0]).get();
+        assertThat(member.getAge()).isEqualTo(30);
+        assertThat(transactionTemplate.execute(status ->
+                em.find(Member.class, ids[0]).getTeam().getName())).isEqualTo("teamB");
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+}